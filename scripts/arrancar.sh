@@ -0,0 +1,13 @@
+#!/usr/bin/env bash
+# Arranca el build de producción (./mvnw -Dproduccion package) desde target/produccion:
+# contexto de Spring procesado en build (AOT) y clases precargadas del archivo CDS entrenado.
+# JAVA_OPTS se pasa a la JVM y los argumentos, a la aplicación (por ejemplo --server.port=8081).
+# El archivo CDS solo sirve con la misma versión de Java que lo generó; si no coincide, la JVM lo ignora.
+set -euo pipefail
+
+DIRECTORIO="${DIRECTORIO_PRODUCCION:-$(dirname "$0")/../target/produccion}"
+JAVA="${JAVA_HOME:+$JAVA_HOME/bin/}java"
+
+cd "$DIRECTORIO"
+exec "$JAVA" -XX:SharedArchiveFile=aplicacion.jsa -Xlog:cds=error -Dspring.aot.enabled=true \
+    ${JAVA_OPTS:-} -jar aplicacion.jar "$@"
@@ -0,0 +1,66 @@
+#!/usr/bin/env bash
+# Mide el arranque del JAR de siempre frente al build de producción (AOT, y AOT + CDS).
+# Por cada modo arranca la aplicación N veces y muestra la mediana de:
+#   listo_ms    desde lanzar la JVM hasta que /actuator/health responde 200 (la réplica ya recibe tráfico)
+#   started_s   tiempo que informa Spring ("Started ... in X seconds")
+#   rss_mb      memoria residente (VmRSS) después de atender GET /api/albumes
+# Uso: scripts/medir-arranque.sh [repeticiones]    (por defecto 5)
+# Necesita la base de datos configurada (como los tests) y Linux (/proc). MVN permite usar otro Maven.
+set -euo pipefail
+
+REPETICIONES="${1:-5}"
+PUERTO="${PUERTO:-8089}"
+MVN="${MVN:-./mvnw}"
+JAVA="${JAVA_HOME:+$JAVA_HOME/bin/}java"
+RAIZ="$(cd "$(dirname "$0")/.." && pwd)"
+TRABAJO="$(mktemp -d)"
+trap 'rm -rf "$TRABAJO"' EXIT
+
+cd "$RAIZ"
+echo "Construyendo el JAR de siempre y el build de producción..." >&2
+"$MVN" -B -q -DskipTests clean package >&2
+cp target/gestion-laminas-albunes-api-*.jar "$TRABAJO/base.jar"
+"$MVN" -B -q -DskipTests -Dproduccion clean package >&2
+
+mediana() {
+    sort -n | awk '{ v[NR] = $1 } END { print (NR % 2) ? v[(NR + 1) / 2] : (v[NR / 2] + v[NR / 2 + 1]) / 2 }'
+}
+
+# medir <modo> <directorio> <argumentos de la JVM...>
+medir() {
+    local modo="$1" directorio="$2"
+    shift 2
+    local listos=() started=() rss=()
+    for ((i = 1; i <= REPETICIONES; i++)); do
+        local log="$TRABAJO/$modo-$i.log"
+        local inicio fin pid
+        inicio=$(date +%s%N)
+        (cd "$directorio" && exec "$JAVA" "$@" --server.port="$PUERTO") > "$log" 2>&1 &
+        pid=$!
+        until curl -sf -o /dev/null "http://localhost:$PUERTO/actuator/health"; do
+            if ! kill -0 "$pid" 2> /dev/null; then
+                echo "La aplicación ($modo) terminó antes de estar lista; ver $log" >&2
+                cat "$log" >&2
+                exit 1
+            fi
+            sleep 0.02
+        done
+        fin=$(date +%s%N)
+        curl -sf -o /dev/null "http://localhost:$PUERTO/api/albumes"
+        listos+=($(((fin - inicio) / 1000000)))
+        started+=("$(grep -o 'Started .* in [0-9.]* seconds' "$log" | grep -o '[0-9.]* seconds' | cut -d' ' -f1)")
+        rss+=($(($(awk '/VmRSS/ { print $2 }' "/proc/$pid/status") / 1024)))
+        kill "$pid"
+        wait "$pid" 2> /dev/null || true
+    done
+    printf '%-10s %10s %10s %8s\n' "$modo" \
+        "$(printf '%s\n' "${listos[@]}" | mediana)" \
+        "$(printf '%s\n' "${started[@]}" | mediana)" \
+        "$(printf '%s\n' "${rss[@]}" | mediana)"
+}
+
+printf '%-10s %10s %10s %8s\n' modo listo_ms started_s rss_mb
+medir base "$TRABAJO" -jar base.jar
+medir aot target/produccion -Dspring.aot.enabled=true -jar aplicacion.jar
+medir aot+cds target/produccion -XX:SharedArchiveFile=aplicacion.jsa -Xlog:cds=error \
+    -Dspring.aot.enabled=true -jar aplicacion.jar
@@ -0,0 +1,65 @@
+package com.example.gestion_laminas_albunes_api.carga;
+
+import com.example.gestion_laminas_albunes_api.GestionLaminasAlbunesApiApplication;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+
+/*
+ * Instancia contra la que corre la prueba de carga. Sin carga.url levanta la
+ * aplicación en este proceso, en un puerto libre, sobre un PostgreSQL embebido
+ * (sin base instalada ni conexión a red). Con carga.url se usa una instancia
+ * ya iniciada, que no comparte CPU con el generador de carga.
+ */
+final class EntornoCarga implements AutoCloseable {
+
+    private final String url;
+    private EmbeddedPostgres postgres;
+    private ConfigurableApplicationContext contexto;
+
+    private EntornoCarga(String url) {
+        this.url = url;
+    }
+
+    static EntornoCarga iniciar(String urlExterna) throws IOException {
+        if (urlExterna != null && !urlExterna.isBlank()) {
+            return new EntornoCarga(urlExterna.replaceAll("/+$", ""));
+        }
+        // devtools está en el classpath de test: sin reinicios en otro classloader durante la medición
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+        // Como argumentos de línea de comandos para que prevalezcan sobre application.properties
+        ConfigurableApplicationContext contexto =
+                new SpringApplicationBuilder(GestionLaminasAlbunesApiApplication.class).run(
+                        "--server.port=0",
+                        "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                        "--spring.datasource.username=postgres",
+                        "--spring.datasource.password=postgres",
+                        "--logging.level.root=WARN");
+        EntornoCarga entorno = new EntornoCarga(
+                "http://localhost:" + contexto.getEnvironment().getProperty("local.server.port"));
+        entorno.postgres = postgres;
+        entorno.contexto = contexto;
+        return entorno;
+    }
+
+    String url() {
+        return url;
+    }
+
+    boolean embebido() {
+        return contexto != null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (contexto != null) {
+            contexto.close();
+        }
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+}
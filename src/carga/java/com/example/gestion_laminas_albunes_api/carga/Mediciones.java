@@ -0,0 +1,107 @@
+package com.example.gestion_laminas_albunes_api.carga;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Latencias por endpoint (ruta con variables, por ejemplo
+ * "PATCH /api/laminas/album/{albumId}/repetida/{numero}") en histogramas HDR de
+ * microsegundos, y errores (respuestas 4xx/5xx o fallos de conexión).
+ */
+final class Mediciones {
+
+    // Hasta 60 s con 3 cifras significativas
+    private static final long MAXIMO_MICROS = Duration.ofSeconds(60).toNanos() / 1000;
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentSkipListMap<>();
+
+    void registrar(String endpoint, long nanos, boolean error) {
+        Endpoint medicion = endpoints.computeIfAbsent(endpoint, e -> new Endpoint());
+        medicion.latencias.recordValue(Math.min(Math.max(nanos / 1000, 1), MAXIMO_MICROS));
+        if (error) {
+            medicion.errores.increment();
+        }
+    }
+
+    void reiniciar() {
+        endpoints.clear();
+    }
+
+    /* Tabla por endpoint y total: peticiones, peticiones por segundo, p50/p99/p99.9/máximo (ms) y errores */
+    void imprimir(PrintStream salida, Duration duracion) {
+        String formato = "%-58s %9s %9s %9s %9s %9s %9s %7s%n";
+        salida.printf(formato, "endpoint", "peticiones", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms",
+                "errores");
+        Histogram total = new Histogram(MAXIMO_MICROS, 3);
+        long erroresTotales = 0;
+        for (Map.Entry<String, Endpoint> endpoint : endpoints.entrySet()) {
+            Histogram latencias = endpoint.getValue().latencias;
+            long errores = endpoint.getValue().errores.sum();
+            total.add(latencias);
+            erroresTotales += errores;
+            salida.print(fila(formato, endpoint.getKey(), latencias, errores, duracion));
+        }
+        salida.print(fila(formato, "TOTAL", total, erroresTotales, duracion));
+    }
+
+    void guardarJson(Path archivo, Duration duracion, Map<String, Object> configuracion) throws IOException {
+        StringBuilder json = new StringBuilder("{\n  \"duracionSegundos\": ").append(duracion.toSeconds())
+                .append(",\n  \"configuracion\": {");
+        String separador = "\n";
+        for (Map.Entry<String, Object> valor : configuracion.entrySet()) {
+            json.append(separador).append("    \"").append(valor.getKey()).append("\": \"").append(valor.getValue())
+                    .append('"');
+            separador = ",\n";
+        }
+        json.append("\n  },\n  \"endpoints\": [");
+        separador = "\n";
+        for (Map.Entry<String, Endpoint> endpoint : endpoints.entrySet()) {
+            Histogram latencias = endpoint.getValue().latencias;
+            json.append(separador).append(String.format(Locale.ROOT,
+                    "    {\"endpoint\": \"%s\", \"peticiones\": %d, \"porSegundo\": %.1f, \"p50Ms\": %.3f, "
+                            + "\"p99Ms\": %.3f, \"p999Ms\": %.3f, \"maxMs\": %.3f, \"errores\": %d}",
+                    endpoint.getKey(), latencias.getTotalCount(), porSegundo(latencias, duracion),
+                    ms(latencias.getValueAtPercentile(50)), ms(latencias.getValueAtPercentile(99)),
+                    ms(latencias.getValueAtPercentile(99.9)), ms(latencias.getMaxValue()),
+                    endpoint.getValue().errores.sum()));
+            separador = ",\n";
+        }
+        json.append("\n  ]\n}\n");
+        Files.createDirectories(archivo.toAbsolutePath().getParent());
+        Files.writeString(archivo, json);
+    }
+
+    private static String fila(String formato, String nombre, Histogram latencias, long errores,
+            Duration duracion) {
+        return String.format(Locale.ROOT, formato, nombre, latencias.getTotalCount(),
+                String.format(Locale.ROOT, "%.1f", porSegundo(latencias, duracion)),
+                String.format(Locale.ROOT, "%.2f", ms(latencias.getValueAtPercentile(50))),
+                String.format(Locale.ROOT, "%.2f", ms(latencias.getValueAtPercentile(99))),
+                String.format(Locale.ROOT, "%.2f", ms(latencias.getValueAtPercentile(99.9))),
+                String.format(Locale.ROOT, "%.2f", ms(latencias.getMaxValue())), errores);
+    }
+
+    private static double porSegundo(Histogram latencias, Duration duracion) {
+        return latencias.getTotalCount() * 1000.0 / Math.max(duracion.toMillis(), 1);
+    }
+
+    private static double ms(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static final class Endpoint {
+
+        private final Histogram latencias = new ConcurrentHistogram(MAXIMO_MICROS, 3);
+        private final LongAdder errores = new LongAdder();
+    }
+}
@@ -0,0 +1,328 @@
+package com.example.gestion_laminas_albunes_api.carga;
+
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/*
+ * Prueba de carga: cada coleccionista simulado es un hilo virtual que repite
+ * la mezcla de operaciones de la aplicación (listar álbumes, consultar
+ * estadísticas y láminas con ETag, abrir sobres y cargas masivas). Tras el
+ * calentamiento mide durante carga.duracion segundos e informa, por endpoint,
+ * peticiones por segundo y latencias p50/p99/p99.9.
+ *
+ * Modelo abierto (carga.tasa > 0): las peticiones llegan a una tasa fija,
+ * repartida entre los coleccionistas, y la latencia se mide desde el instante
+ * en que la petición debía salir. Si el servidor se atrasa, la espera de las
+ * peticiones que no pudieron salir a tiempo cuenta en la latencia en lugar de
+ * bajar la tasa (sin omisión coordinada). Con carga.tasa=0 cada coleccionista
+ * envía sin pausas (modelo cerrado): mide el rendimiento máximo, pero sus
+ * percentiles subestiman la latencia cuando el servidor se frena.
+ *
+ *   ./mvnw -Pcarga verify -Dcarga.usuarios=100 -Dcarga.tasa=1000 -Dcarga.duracion=120
+ */
+public final class PruebaCarga {
+
+    private static final String CABECERA_COLECCIONISTA = "X-Coleccionista";
+    private static final int LAMINAS_POR_SOBRE = 5;
+    private static final int LAMINAS_POR_CARGA_MASIVA = 50;
+    private static final int TOTAL_ALBUM_MASIVO = 100_000; // Máximo de láminas por álbum que admite la API
+    private static final long PRIMER_COLECCIONISTA = 1000;
+
+    /* Mezcla de operaciones de cada coleccionista, en porcentaje */
+    private enum Operacion {
+        LISTAR_ALBUMES(25),
+        CONSULTAR_ESTADISTICAS(30),
+        CONSULTAR_LAMINAS(10),
+        ABRIR_SOBRE(30),
+        CARGA_MASIVA(5);
+
+        private final int porcentaje;
+
+        Operacion(int porcentaje) {
+            this.porcentaje = porcentaje;
+        }
+
+        static Operacion elegir(int azar) {
+            int acumulado = 0;
+            for (Operacion operacion : values()) {
+                acumulado += operacion.porcentaje;
+                if (azar < acumulado) {
+                    return operacion;
+                }
+            }
+            return LISTAR_ALBUMES;
+        }
+    }
+
+    private final String url;
+    private final int laminasPorAlbum;
+    private final HttpClient cliente;
+    private final ObjectMapper json = JsonMapper.builder().build();
+    private final Mediciones mediciones = new Mediciones();
+
+    private long[] albumes;
+    private final Map<Integer, Long> albumesMasivos = new ConcurrentHashMap<>();
+    private final AtomicInteger siguienteNumeroMasivo = new AtomicInteger(1);
+    private volatile boolean midiendo;
+
+    private PruebaCarga(String url, int laminasPorAlbum) {
+        this.url = url;
+        this.laminasPorAlbum = laminasPorAlbum;
+        this.cliente = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int usuarios = Integer.getInteger("carga.usuarios", 50);
+        int tasa = Integer.getInteger("carga.tasa", 500);
+        Duration calentamiento = Duration.ofSeconds(Integer.getInteger("carga.calentamiento", 15));
+        Duration duracion = Duration.ofSeconds(Integer.getInteger("carga.duracion", 60));
+        int cantidadAlbumes = Integer.getInteger("carga.albumes", 5);
+        int laminasPorAlbum = Integer.getInteger("carga.laminas", 700);
+        Path resultado = Path.of(System.getProperty("carga.resultado", "target/carga-result.json"));
+
+        try (EntornoCarga entorno = EntornoCarga.iniciar(System.getProperty("carga.url"))) {
+            Map<String, Object> configuracion = new LinkedHashMap<>();
+            configuracion.put("url", entorno.url());
+            configuracion.put("aplicacionEmbebida", entorno.embebido());
+            configuracion.put("usuarios", usuarios);
+            configuracion.put("modelo", tasa > 0
+                    ? "abierto: " + tasa + " peticiones/s, latencia desde el instante programado"
+                    : "cerrado: sin pausas, latencia desde el envío (no corrige la omisión coordinada)");
+            configuracion.put("calentamientoSegundos", calentamiento.toSeconds());
+            configuracion.put("albumes", cantidadAlbumes);
+            configuracion.put("laminasPorAlbum", laminasPorAlbum);
+            System.out.println("Prueba de carga " + configuracion);
+
+            PruebaCarga prueba = new PruebaCarga(entorno.url(), laminasPorAlbum);
+            prueba.preparar(cantidadAlbumes);
+            Duration medido = prueba.ejecutar(usuarios, tasa, calentamiento, duracion);
+
+            System.out.println("Modelo " + configuracion.get("modelo"));
+            prueba.mediciones.imprimir(System.out, medido);
+            prueba.mediciones.guardarJson(resultado, medido, configuracion);
+            System.out.println("Resultados en " + resultado.toAbsolutePath());
+        }
+    }
+
+    /* Álbumes de prueba creados por la API: láminas 1..laminasPorAlbum y uno vacío para las cargas masivas */
+    private void preparar(int cantidadAlbumes) throws IOException, InterruptedException {
+        albumes = new long[cantidadAlbumes];
+        for (int i = 0; i < cantidadAlbumes; i++) {
+            albumes[i] = crearAlbum("Carga " + (i + 1), laminasPorAlbum);
+            HttpResponse<String> respuesta = cliente.send(post("/api/laminas/album/" + albumes[i] + "/multiple",
+                    numeros(1, laminasPorAlbum)).build(), HttpResponse.BodyHandlers.ofString());
+            if (respuesta.statusCode() >= 400) {
+                throw new IllegalStateException("No se pudieron crear las láminas: " + respuesta.body());
+            }
+        }
+        albumesMasivos.put(0, crearAlbum("Carga masiva 1", TOTAL_ALBUM_MASIVO));
+    }
+
+    /* Álbum vacío para las cargas masivas; cuando uno se llena se crea el siguiente */
+    private long albumMasivo(int indice) {
+        return albumesMasivos.computeIfAbsent(indice, i -> {
+            try {
+                return crearAlbum("Carga masiva " + (i + 1), TOTAL_ALBUM_MASIVO);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private long crearAlbum(String nombre, int totalLaminas) throws IOException, InterruptedException {
+        HttpResponse<String> respuesta = cliente.send(post("/api/albumes",
+                        "{\"nombre\":\"" + nombre + "\",\"tipoLaminas\":\"Carga\",\"totalLaminas\":" + totalLaminas
+                                + "}").build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (respuesta.statusCode() >= 400) {
+            throw new IllegalStateException("No se pudo crear el álbum: " + respuesta.body());
+        }
+        return json.readTree(respuesta.body()).path("datos").path("id").asLong();
+    }
+
+    /* Calentamiento sin medir y luego la medición; devuelve la duración medida */
+    private Duration ejecutar(int usuarios, int tasa, Duration calentamiento, Duration duracion)
+            throws InterruptedException {
+        long inicio = System.nanoTime();
+        long finCalentamiento = inicio + calentamiento.toNanos();
+        long fin = finCalentamiento + duracion.toNanos();
+        // Cada coleccionista envía una petición cada usuarios/tasa segundos, desfasados entre sí
+        long intervalo = tasa > 0 ? Duration.ofSeconds(usuarios).toNanos() / tasa : 0;
+        try (ExecutorService coleccionistas = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < usuarios; i++) {
+                long coleccionistaId = PRIMER_COLECCIONISTA + i;
+                Agenda agenda = new Agenda(intervalo, inicio + intervalo * i / usuarios);
+                coleccionistas.execute(() -> coleccionista(coleccionistaId, agenda, fin));
+            }
+            Thread.sleep(calentamiento);
+            mediciones.reiniciar();
+            midiendo = true;
+        }
+        midiendo = false;
+        return Duration.ofNanos(System.nanoTime() - finCalentamiento);
+    }
+
+    private void coleccionista(long coleccionistaId, Agenda agenda, long fin) {
+        ThreadLocalRandom azar = ThreadLocalRandom.current();
+        // Láminas que este coleccionista ya adquirió, por álbum, y última ETag de cada consulta
+        Map<Long, BitSet> adquiridas = new HashMap<>();
+        Map<String, String> etags = new HashMap<>();
+        while (System.nanoTime() < fin) {
+            long albumId = albumes[azar.nextInt(albumes.length)];
+            switch (Operacion.elegir(azar.nextInt(100))) {
+                case LISTAR_ALBUMES:
+                    enviar("GET /api/albumes", get("/api/albumes"), coleccionistaId, agenda);
+                    break;
+                case CONSULTAR_ESTADISTICAS:
+                    consultarConEtag("GET /api/albumes/{id}/estadisticas", "/api/albumes/" + albumId + "/estadisticas",
+                            coleccionistaId, agenda, etags);
+                    break;
+                case CONSULTAR_LAMINAS:
+                    consultarConEtag("GET /api/laminas/album/{albumId}", "/api/laminas/album/" + albumId,
+                            coleccionistaId, agenda, etags);
+                    break;
+                case ABRIR_SOBRE:
+                    BitSet propias = adquiridas.computeIfAbsent(albumId, id -> new BitSet());
+                    for (int i = 0; i < LAMINAS_POR_SOBRE; i++) {
+                        int numero = azar.nextInt(1, laminasPorAlbum + 1);
+                        if (propias.get(numero)) {
+                            enviar("PATCH /api/laminas/album/{albumId}/repetida/{numero}",
+                                    patch("/api/laminas/album/" + albumId + "/repetida/" + numero), coleccionistaId,
+                                    agenda);
+                        } else {
+                            enviar("PATCH /api/laminas/album/{albumId}/adquirir/{numero}",
+                                    patch("/api/laminas/album/" + albumId + "/adquirir/" + numero), coleccionistaId,
+                                    agenda);
+                            propias.set(numero);
+                        }
+                    }
+                    break;
+                case CARGA_MASIVA:
+                    int carga = siguienteNumeroMasivo.getAndAdd(LAMINAS_POR_CARGA_MASIVA) - 1;
+                    long albumMasivo = albumMasivo(carga / TOTAL_ALBUM_MASIVO);
+                    int desde = carga % TOTAL_ALBUM_MASIVO + 1;
+                    enviar("POST /api/laminas/album/{albumId}/multiple",
+                            post("/api/laminas/album/" + albumMasivo + "/multiple",
+                                    numeros(desde, desde + LAMINAS_POR_CARGA_MASIVA - 1)),
+                            coleccionistaId, agenda);
+                    break;
+            }
+        }
+    }
+
+    /* Consulta periódica como la de un cliente real: reenvía la última ETag y acepta 304 */
+    private void consultarConEtag(String endpoint, String ruta, long coleccionistaId, Agenda agenda,
+            Map<String, String> etags) {
+        HttpRequest.Builder peticion = get(ruta);
+        String etag = etags.get(ruta);
+        if (etag != null) {
+            peticion.header("If-None-Match", etag);
+        }
+        HttpResponse<String> respuesta = enviar(endpoint, peticion, coleccionistaId, agenda);
+        if (respuesta != null) {
+            respuesta.headers().firstValue("ETag").ifPresent(nueva -> etags.put(ruta, nueva));
+        }
+    }
+
+    /*
+     * Enviar en el turno de la agenda y medir desde ese turno (respuesta completa
+     * leída); null si falló la conexión
+     */
+    private HttpResponse<String> enviar(String endpoint, HttpRequest.Builder peticion, long coleccionistaId,
+            Agenda agenda) {
+        HttpRequest request = peticion.header(CABECERA_COLECCIONISTA, String.valueOf(coleccionistaId)).build();
+        long inicio = agenda.esperarTurno();
+        try {
+            HttpResponse<String> respuesta = cliente.send(request, HttpResponse.BodyHandlers.ofString());
+            if (midiendo) {
+                mediciones.registrar(endpoint, System.nanoTime() - inicio, respuesta.statusCode() >= 400);
+            }
+            return respuesta;
+        } catch (IOException e) {
+            if (midiendo) {
+                mediciones.registrar(endpoint, System.nanoTime() - inicio, true);
+            }
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private HttpRequest.Builder get(String ruta) {
+        return HttpRequest.newBuilder(URI.create(url + ruta)).timeout(Duration.ofSeconds(30)).GET();
+    }
+
+    private HttpRequest.Builder patch(String ruta) {
+        return HttpRequest.newBuilder(URI.create(url + ruta)).timeout(Duration.ofSeconds(30))
+                .method("PATCH", HttpRequest.BodyPublishers.noBody());
+    }
+
+    private HttpRequest.Builder post(String ruta, String cuerpo) {
+        return HttpRequest.newBuilder(URI.create(url + ruta)).timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(cuerpo));
+    }
+
+    /*
+     * Instantes programados de las peticiones de un coleccionista. Con intervalo 0
+     * (modelo cerrado) el turno es el momento actual. Si no, los turnos avanzan a
+     * paso fijo aunque una respuesta tarde: la siguiente petición sale en cuanto
+     * puede y su latencia incluye el atraso acumulado.
+     */
+    private static final class Agenda {
+
+        private final long intervalo;
+        private long siguiente;
+
+        Agenda(long intervalo, long primero) {
+            this.intervalo = intervalo;
+            this.siguiente = primero;
+        }
+
+        long esperarTurno() {
+            if (intervalo == 0) {
+                return System.nanoTime();
+            }
+            long espera = siguiente - System.nanoTime();
+            if (espera > 0) {
+                LockSupport.parkNanos(espera);
+            }
+            long turno = siguiente;
+            siguiente += intervalo;
+            return turno;
+        }
+    }
+
+    private static String numeros(int desde, int hasta) {
+        return IntStream.rangeClosed(desde, hasta).mapToObj(String::valueOf)
+                .collect(Collectors.joining(",", "{\"numeros\":[", "]}"));
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.gestion_laminas_albunes_api.benchmark;
+
+import com.example.gestion_laminas_albunes_api.response.AlbumDetalleResponse;
+import com.example.gestion_laminas_albunes_api.service.AlbumService;
+import com.example.gestion_laminas_albunes_api.service.CacheAlbumes;
+import com.example.gestion_laminas_albunes_api.service.ClaveColeccion;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/* Estadísticas de un álbum, con y sin el caché de Caffeine */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AlbumServiceBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    private int cantidad;
+
+    private AlbumService albumService;
+    private JdbcTemplate jdbc;
+    private Cache estadisticas;
+    private Long albumId;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        ConfigurableApplicationContext contexto = EntornoBenchmark.iniciar();
+        albumService = contexto.getBean(AlbumService.class);
+        jdbc = contexto.getBean(JdbcTemplate.class);
+        estadisticas = contexto.getBean(CacheManager.class).getCache(CacheAlbumes.ESTADISTICAS);
+        albumId = EntornoBenchmark.crearAlbum(jdbc, cantidad);
+    }
+
+    @TearDown(Level.Trial)
+    public void detener() throws IOException {
+        EntornoBenchmark.eliminarAlbum(jdbc, albumId);
+        EntornoBenchmark.detener();
+    }
+
+    /* Consulta a la base de datos: se invalida la entrada antes de cada llamada */
+    @Benchmark
+    public AlbumDetalleResponse estadisticasSinCache() {
+        estadisticas.evict(new ClaveColeccion(albumId, EntornoBenchmark.COLECCIONISTA));
+        return albumService.estadisticasAlbum(albumId, EntornoBenchmark.COLECCIONISTA);
+    }
+
+    @Benchmark
+    public AlbumDetalleResponse estadisticasConCache() {
+        return albumService.estadisticasAlbum(albumId, EntornoBenchmark.COLECCIONISTA);
+    }
+}
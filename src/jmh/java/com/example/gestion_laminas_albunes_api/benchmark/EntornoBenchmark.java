@@ -0,0 +1,97 @@
+package com.example.gestion_laminas_albunes_api.benchmark;
+
+import com.example.gestion_laminas_albunes_api.GestionLaminasAlbunesApiApplication;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/*
+ * Contexto de Spring compartido por los benchmarks de un mismo proceso.
+ * Por defecto levanta un PostgreSQL embebido; con la variable de entorno
+ * BENCHMARK_JDBC_URL (y BENCHMARK_JDBC_USERNAME / BENCHMARK_JDBC_PASSWORD)
+ * se usa una base de datos existente.
+ */
+final class EntornoBenchmark {
+
+    // Coleccionista cuyo estado llenan los álbumes de prueba
+    static final Long COLECCIONISTA = 1L;
+
+    private static EmbeddedPostgres postgres;
+    private static ConfigurableApplicationContext contexto;
+
+    private EntornoBenchmark() {
+    }
+
+    static synchronized ConfigurableApplicationContext iniciar() {
+        if (contexto != null) {
+            return contexto;
+        }
+        String url = System.getenv("BENCHMARK_JDBC_URL");
+        String usuario = System.getenv().getOrDefault("BENCHMARK_JDBC_USERNAME", "postgres");
+        String clave = System.getenv().getOrDefault("BENCHMARK_JDBC_PASSWORD", "postgres");
+        if (url == null) {
+            try {
+                postgres = EmbeddedPostgres.builder().start();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            url = postgres.getJdbcUrl("postgres", "postgres");
+            usuario = "postgres";
+            clave = "postgres";
+        }
+        // Como argumentos de línea de comandos para que prevalezcan sobre application.properties
+        contexto = new SpringApplicationBuilder(GestionLaminasAlbunesApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.datasource.url=" + url,
+                        "--spring.datasource.username=" + usuario,
+                        "--spring.datasource.password=" + clave,
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN");
+        return contexto;
+    }
+
+    static synchronized void detener() throws IOException {
+        if (contexto != null) {
+            contexto.close();
+            contexto = null;
+        }
+        if (postgres != null) {
+            postgres.close();
+            postgres = null;
+        }
+    }
+
+    /* Crear un álbum con láminas 1..cantidad (pares adquiridas, múltiplos de 3 repetidos) directamente por JDBC */
+    static Long crearAlbum(JdbcTemplate jdbc, int cantidad) {
+        Long albumId = jdbc.queryForObject(
+                "INSERT INTO albumes (nombre, total_laminas) VALUES (?, ?) RETURNING id",
+                Long.class, "Benchmark " + cantidad, cantidad);
+        jdbc.update("INSERT INTO laminas (numero, nombre, imagen, version, album_id) "
+                + "SELECT n, 'Lámina ' || n, 'https://example.com/laminas/' || n || '.jpg', 0, ? "
+                + "FROM generate_series(1, ?) AS n", albumId, cantidad);
+        jdbc.update("INSERT INTO laminas_coleccion (coleccionista_id, lamina_id, adquirida, cantidad_repetidas) "
+                + "SELECT ?, id, numero % 2 = 0, CASE WHEN numero % 3 = 0 THEN 1 ELSE 0 END FROM laminas "
+                + "WHERE album_id = ? AND (numero % 2 = 0 OR numero % 3 = 0)", COLECCIONISTA, albumId);
+        return albumId;
+    }
+
+    static void eliminarAlbum(JdbcTemplate jdbc, Long albumId) {
+        // El estado de las colecciones se borra en cascada con las láminas y el álbum
+        jdbc.update("DELETE FROM laminas WHERE album_id = ?", albumId);
+        jdbc.update("DELETE FROM albumes WHERE id = ?", albumId);
+    }
+
+    static List<Integer> numeros(int cantidad) {
+        return IntStream.rangeClosed(1, cantidad).boxed().collect(Collectors.toCollection(ArrayList::new));
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.gestion_laminas_albunes_api.benchmark;
+
+import com.example.gestion_laminas_albunes_api.response.LaminaConEstadoResponse;
+import com.example.gestion_laminas_albunes_api.response.LaminaRepetidaResponse;
+import com.example.gestion_laminas_albunes_api.service.LaminaService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/* Rutas calientes de LaminaService contra PostgreSQL */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LaminaServiceBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    private int cantidad;
+
+    private LaminaService laminaService;
+    private JdbcTemplate jdbc;
+    private Long albumLectura;
+    private List<Integer> numeros;
+
+    /*
+     * Álbum vacío para cada carga masiva, así cada invocación inserta todas las
+     * láminas. Está en su propio estado para que la creación y el borrado por
+     * invocación solo rodeen a crearMultiples (que tarda milisegundos, no micros)
+     */
+    @State(Scope.Thread)
+    public static class AlbumVacio {
+
+        private Long albumId;
+
+        @Setup(Level.Invocation)
+        public void crear(LaminaServiceBenchmark benchmark) {
+            albumId = EntornoBenchmark.crearAlbum(benchmark.jdbc, 0);
+        }
+
+        @TearDown(Level.Invocation)
+        public void eliminar(LaminaServiceBenchmark benchmark) {
+            EntornoBenchmark.eliminarAlbum(benchmark.jdbc, albumId);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        ConfigurableApplicationContext contexto = EntornoBenchmark.iniciar();
+        laminaService = contexto.getBean(LaminaService.class);
+        jdbc = contexto.getBean(JdbcTemplate.class);
+        albumLectura = EntornoBenchmark.crearAlbum(jdbc, cantidad);
+        numeros = EntornoBenchmark.numeros(cantidad);
+    }
+
+    @TearDown(Level.Trial)
+    public void detener() throws IOException {
+        EntornoBenchmark.eliminarAlbum(jdbc, albumLectura);
+        EntornoBenchmark.detener();
+    }
+
+    @Benchmark
+    public List<LaminaConEstadoResponse> crearMultiples(AlbumVacio album) {
+        return laminaService.crearMultiples(album.albumId, numeros);
+    }
+
+    @Benchmark
+    public Optional<List<LaminaRepetidaResponse>> obtenerRepetidas() {
+        return laminaService.obtenerRepetidas(albumLectura, EntornoBenchmark.COLECCIONISTA);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.gestion_laminas_albunes_api.benchmark;
+
+import com.example.gestion_laminas_albunes_api.response.AlbumResumenResponse;
+import com.example.gestion_laminas_albunes_api.response.AlbumesResponse;
+import com.example.gestion_laminas_albunes_api.response.LaminaConEstadoResponse;
+import com.example.gestion_laminas_albunes_api.response.LaminasResponse;
+import org.openjdk.jmh.annotations.*;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/* Serialización JSON de las respuestas de listados, sin base de datos */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializacionBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    private int cantidad;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().build();
+    private LaminasResponse laminas;
+    private AlbumesResponse albumes;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        List<LaminaConEstadoResponse> listaLaminas = new ArrayList<>(cantidad);
+        List<AlbumResumenResponse> listaAlbumes = new ArrayList<>(cantidad);
+        for (int i = 1; i <= cantidad; i++) {
+            listaLaminas.add(new LaminaConEstadoResponse((long) i, i, "Lámina " + i,
+                    "https://example.com/laminas/" + i + ".jpg", i % 2 == 0, i % 3 == 0 ? 1 : 0, 0L));
+
+            listaAlbumes.add(new AlbumResumenResponse((long) i, "Álbum " + i,
+                    "https://example.com/albumes/" + i + ".jpg", LocalDate.of(2022, 10, 1), "deportes", 640,
+                    "Descripción del álbum " + i));
+        }
+        laminas = new LaminasResponse();
+        laminas.setStatus(200);
+        laminas.setMensaje("Laminas obtenidas");
+        laminas.setDatos(listaLaminas);
+        albumes = new AlbumesResponse();
+        albumes.setStatus(200);
+        albumes.setMensaje("Albumes obtenidos");
+        albumes.setDatos(listaAlbumes);
+    }
+
+    @Benchmark
+    public byte[] serializarLaminas() {
+        return objectMapper.writeValueAsBytes(laminas);
+    }
+
+    @Benchmark
+    public byte[] serializarAlbumes() {
+        return objectMapper.writeValueAsBytes(albumes);
+    }
+}
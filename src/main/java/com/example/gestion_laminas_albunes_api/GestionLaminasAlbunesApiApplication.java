@@ -2,8 +2,10 @@ package com.example.gestion_laminas_albunes_api;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
 
 @SpringBootApplication
+@EnableCaching
 public class GestionLaminasAlbunesApiApplication {
 
 	public static void main(String[] args) {
@@ -1,23 +1,44 @@
 package com.example.gestion_laminas_albunes_api.controller;
 
-import com.example.gestion_laminas_albunes_api.model.Album;
 import com.example.gestion_laminas_albunes_api.request.AlbumRequest;
+import com.example.gestion_laminas_albunes_api.response.AlbumDetalleResponse;
 import com.example.gestion_laminas_albunes_api.response.AlbumResponse;
+import com.example.gestion_laminas_albunes_api.response.AlbumResumenResponse;
 import com.example.gestion_laminas_albunes_api.response.AlbumesResponse;
+import com.example.gestion_laminas_albunes_api.response.IntercambioResponse;
+import com.example.gestion_laminas_albunes_api.response.IntercambiosResponse;
+import com.example.gestion_laminas_albunes_api.response.PaginaAlbumes;
 import com.example.gestion_laminas_albunes_api.service.AlbumService;
+import com.example.gestion_laminas_albunes_api.service.DifusorCambiosAlbum;
+import com.example.gestion_laminas_albunes_api.service.IntercambioService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/albumes")
 public class AlbumController {
 
+    private static final String CABECERA_SIGUIENTE_CURSOR = "X-Siguiente-Cursor";
+
     @Autowired
     private AlbumService albumService;
 
+    @Autowired
+    private IntercambioService intercambioService;
+
+    @Autowired
+    private DifusorCambiosAlbum difusorCambios;
+
     /* Obtener todos los álbumes -> GET /api/albumes **/
     @GetMapping
     public ResponseEntity<Object> obtenerTodos() {
@@ -31,8 +52,13 @@ public class AlbumController {
 
     /* Obtener un álbum por ID -> GET /api/albumes/{id} */
     @GetMapping("/{id}")
-    public ResponseEntity<Object> obtenerPorId(@PathVariable Long id) {
-        Album album = albumService.obtenerId(id);
+    public ResponseEntity<Object> obtenerPorId(@PathVariable Long id,
+            @RequestHeader(name = Coleccionista.CABECERA, defaultValue = Coleccionista.DEFECTO) Long coleccionistaId,
+            WebRequest webRequest) {
+        if (noModificado(id, coleccionistaId, webRequest)) {
+            return null;
+        }
+        AlbumDetalleResponse album = albumService.obtenerDetalle(id, coleccionistaId);
         AlbumResponse respuesta = new AlbumResponse();
         if (album != null) {
             respuesta.setStatus(200);
@@ -49,7 +75,7 @@ public class AlbumController {
     /* Crear un nuevo álbum ->POST /api/albumes */
     @PostMapping
     public ResponseEntity<Object> crear(@RequestBody AlbumRequest request) {
-        Album album = albumService.crear(request);
+        AlbumDetalleResponse album = albumService.crear(request);
 
         AlbumResponse respuesta = new AlbumResponse();
         if (album != null) {
@@ -68,9 +94,16 @@ public class AlbumController {
     /* Actualizar un álbum existente -> PUT /api/albumes/{id} */
     @PutMapping("/{id}")
     public ResponseEntity<AlbumResponse> actualizar(@PathVariable Long id, @RequestBody AlbumRequest request) {
-        Album album = albumService.actualizar(id, request);
-
         AlbumResponse respuesta = new AlbumResponse();
+        AlbumDetalleResponse album;
+        try {
+            album = albumService.actualizar(id, request);
+        } catch (IllegalArgumentException e) {
+            respuesta.setStatus(400);
+            respuesta.setMensaje(e.getMessage());
+            return ResponseEntity.badRequest().body(respuesta);
+        }
+
         if (album != null) {
             respuesta.setStatus(200);
             respuesta.setMensaje("Album actualizado");
@@ -88,33 +121,51 @@ public class AlbumController {
     public ResponseEntity<AlbumResponse> eliminar(@PathVariable Long id) {
         AlbumResponse respuesta = new AlbumResponse();
 
-        if (albumService.obtenerId(id) == null) {
+        if (!albumService.eliminar(id)) {
             respuesta.setStatus(404);
             respuesta.setMensaje("El album no existe");
             return ResponseEntity.status(404).body(respuesta);
         }
-        albumService.eliminar(id);
         respuesta.setStatus(200);
         respuesta.setMensaje("Album eliminado");
         return ResponseEntity.ok().body(respuesta);
     }
 
-    /* Buscar álbumes por nombre -> GET /api/albumes/buscar?nombre={nombre} */
+    /*
+     * Buscar álbumes -> GET /api/albumes/buscar?texto={texto}&tipo={tipo}&desde={fecha}&hasta={fecha}
+     * Todos los parámetros son opcionales (nombre se acepta como sinónimo de texto). Resultados
+     * paginados: si hay más, la cabecera X-Siguiente-Cursor trae el valor para el parámetro cursor.
+     */
     @GetMapping("/buscar")
-    public ResponseEntity<List<Album>> buscarPorNombre(@RequestParam String nombre) {
-        List<Album> albumes = albumService.buscarPorNombre(nombre);
-        return ResponseEntity.ok(albumes);
+    public ResponseEntity<List<AlbumResumenResponse>> buscar(@RequestParam(required = false) String texto,
+            @RequestParam(required = false) String nombre, @RequestParam(required = false) String tipo,
+            @RequestParam(required = false) LocalDate desde, @RequestParam(required = false) LocalDate hasta,
+            @RequestParam(required = false) String cursor, @RequestParam(required = false) Integer tamano) {
+        PaginaAlbumes pagina;
+        try {
+            pagina = albumService.buscar(texto != null ? texto : nombre, tipo, desde, hasta, cursor, tamano);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok();
+        if (pagina.getSiguienteCursor() != null) {
+            respuesta.header(CABECERA_SIGUIENTE_CURSOR, pagina.getSiguienteCursor());
+        }
+        return respuesta.body(pagina.getDatos());
     }
 
     /* Obtener un álbum con estadísticas -> GET /api/albumes/{id}/estadisticas */
     @GetMapping("/{id}/estadisticas")
-    public ResponseEntity<Object> obtenerConEstadisticas(@PathVariable Long id) {
-        Album album = albumService.obtenerId(id);
+    public ResponseEntity<Object> obtenerConEstadisticas(@PathVariable Long id,
+            @RequestHeader(name = Coleccionista.CABECERA, defaultValue = Coleccionista.DEFECTO) Long coleccionistaId,
+            WebRequest webRequest) {
+        if (noModificado(id, coleccionistaId, webRequest)) {
+            return null;
+        }
+        AlbumDetalleResponse albumConEstadisticas = albumService.estadisticasAlbum(id, coleccionistaId);
         AlbumResponse respuesta = new AlbumResponse();
 
-        if (album != null) {
-            Album albumConEstadisticas = albumService.estadisticasAlbum(album);
-
+        if (albumConEstadisticas != null) {
             respuesta.setStatus(200);
             respuesta.setMensaje("Álbum obtenido con estadísticas");
             respuesta.setDatos(albumConEstadisticas);
@@ -125,4 +176,57 @@ public class AlbumController {
             return ResponseEntity.status(404).body(respuesta);
         }
     }
+
+    /* Buscar intercambios con otros coleccionistas del mismo álbum -> GET /api/albumes/{id}/intercambios */
+    @GetMapping("/{id}/intercambios")
+    public ResponseEntity<Object> buscarIntercambios(@PathVariable Long id,
+            @RequestParam(required = false) Integer limite,
+            @RequestHeader(name = Coleccionista.CABECERA, defaultValue = Coleccionista.DEFECTO) Long coleccionistaId) {
+        List<IntercambioResponse> intercambios = intercambioService.buscarIntercambios(id, coleccionistaId, limite);
+        IntercambiosResponse respuesta = new IntercambiosResponse();
+
+        if (intercambios == null) {
+            respuesta.setStatus(404);
+            respuesta.setMensaje("Álbum no encontrado");
+            return ResponseEntity.status(404).body(respuesta);
+        }
+        respuesta.setStatus(200);
+        respuesta.setMensaje("Intercambios encontrados: " + intercambios.size());
+        respuesta.setDatos(intercambios);
+        return ResponseEntity.ok().body(respuesta);
+    }
+
+    /*
+     * Stream de cambios del álbum (Server-Sent Events) -> GET /api/albumes/{id}/eventos
+     * Cada evento lleva el tipo de cambio y el estado final de la lámina afectada:
+     * cambios del catálogo y del estado en la colección del coleccionista. El
+     * coleccionista puede ir como ?coleccionista= (EventSource no envía cabeceras),
+     * que tiene prioridad sobre la cabecera.
+     */
+    @GetMapping(value = "/{id}/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> suscribirCambios(@PathVariable Long id,
+            @RequestParam(name = Coleccionista.PARAMETRO, required = false) Long coleccionistaParametro,
+            @RequestHeader(name = Coleccionista.CABECERA, defaultValue = Coleccionista.DEFECTO) Long coleccionistaId) {
+        if (!albumService.existe(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(difusorCambios.suscribir(id,
+                coleccionistaParametro != null ? coleccionistaParametro : coleccionistaId));
+    }
+
+    /*
+     * Consulta condicional con la versión del álbum y de la colección como ETag: 304 sin armar la respuesta.
+     * ETag débil (W/), como en las láminas, para que la respuesta se pueda comprimir con gzip, y Vary: Accept,
+     * X-Coleccionista porque la ETag no distingue JSON de CBOR o Smile ni la URL al coleccionista
+     */
+    private boolean noModificado(Long id, Long coleccionistaId, WebRequest webRequest) {
+        if (webRequest instanceof ServletWebRequest servlet && servlet.getResponse() != null) {
+            HttpServletResponse respuesta = servlet.getResponse();
+            respuesta.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            respuesta.addHeader(HttpHeaders.VARY, Coleccionista.CABECERA);
+        }
+        String version = albumService.obtenerVersion(id, coleccionistaId);
+        return version != null
+                && webRequest.checkNotModified("W/\"" + id + "-" + coleccionistaId + "-" + version + "\"");
+    }
 }
@@ -0,0 +1,18 @@
+package com.example.gestion_laminas_albunes_api.controller;
+
+/*
+ * Cabecera que identifica al coleccionista dueño de la colección consultada o
+ * modificada. Sin ella se usa el coleccionista por defecto (0), que conserva el
+ * estado anterior a la separación entre catálogo y colecciones. El stream de
+ * eventos acepta también el parámetro de consulta, porque EventSource en el
+ * navegador no puede enviar cabeceras propias.
+ */
+public final class Coleccionista {
+
+    public static final String CABECERA = "X-Coleccionista";
+    public static final String PARAMETRO = "coleccionista";
+    public static final String DEFECTO = "0";
+
+    private Coleccionista() {
+    }
+}
@@ -1,33 +1,91 @@
 package com.example.gestion_laminas_albunes_api.controller;
 
-import com.example.gestion_laminas_albunes_api.model.Lamina;
+import com.example.gestion_laminas_albunes_api.request.FilaLaminaRequest;
 import com.example.gestion_laminas_albunes_api.request.LaminaRequest;
 import com.example.gestion_laminas_albunes_api.request.ListaLaminasRequest;
+import com.example.gestion_laminas_albunes_api.request.LoteOperacionesRequest;
+import com.example.gestion_laminas_albunes_api.response.EstadoNumeroResponse;
+import com.example.gestion_laminas_albunes_api.response.ImportacionResponse;
+import com.example.gestion_laminas_albunes_api.response.LaminaConEstadoResponse;
 import com.example.gestion_laminas_albunes_api.response.LaminaRepetidaResponse;
 import com.example.gestion_laminas_albunes_api.response.LaminaResponse;
+import com.example.gestion_laminas_albunes_api.response.LaminasColumnas;
+import com.example.gestion_laminas_albunes_api.response.LaminasColumnasResponse;
 import com.example.gestion_laminas_albunes_api.response.LaminasResponse;
+import com.example.gestion_laminas_albunes_api.response.PaginaLaminas;
+import com.example.gestion_laminas_albunes_api.response.ResultadoOperacionResponse;
+import com.example.gestion_laminas_albunes_api.response.ResultadosOperacionesResponse;
+import com.example.gestion_laminas_albunes_api.service.FiltroLaminas;
 import com.example.gestion_laminas_albunes_api.service.LaminaService;
+import com.example.gestion_laminas_albunes_api.service.RepetidasDiferidas;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.MappingIterator;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.SequenceWriter;
+import tools.jackson.dataformat.csv.CsvMapper;
+import tools.jackson.dataformat.csv.CsvReadFeature;
+import tools.jackson.dataformat.csv.CsvSchema;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/laminas")
 public class LaminaController {
 
+    private static final String CABECERA_SIGUIENTE_CURSOR = "X-Siguiente-Cursor";
+    private static final String TEXT_CSV = "text/csv";
+    // ?formato=columnas: listados como LaminasColumnas en lugar de un objeto por lámina
+    private static final String FORMATO_COLUMNAS = "columnas";
+
+    // CSV con encabezado; las celdas vacías se leen como null para aplicar los valores por defecto
+    private static final CsvMapper CSV = CsvMapper.builder().enable(CsvReadFeature.EMPTY_STRING_AS_NULL).build();
+    private static final CsvSchema ESQUEMA_CSV = CSV.schemaFor(FilaLaminaRequest.class).withHeader();
+
     @Autowired
     private LaminaService laminaService;
 
+    @Autowired
+    private RepetidasDiferidas repetidasDiferidas;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /* Obtener todas las láminas de un álbum -> GET /api/laminas/album/{albumId} */
     @GetMapping("/album/{albumId}")
-    public ResponseEntity<Object> obtenerPorAlbum(@PathVariable Long albumId) {
-        List<Lamina> laminas = laminaService.obtenerPorAlbum(albumId);
+    public ResponseEntity<Object> obtenerPorAlbum(@PathVariable Long albumId,
+            @RequestParam(required = false) Integer cursor, @RequestParam(required = false) Integer tamano,
+            @RequestParam(required = false) String formato,
+            @RequestHeader(name = Coleccionista.CABECERA, defaultValue = Coleccionista.DEFECTO) Long coleccionistaId,
+            WebRequest webRequest) {
+        if (noModificado(albumId, coleccionistaId, webRequest)) {
+            return null;
+        }
+        if (cursor != null || tamano != null) {
+            return obtenerPaginaPorAlbum(albumId, coleccionistaId, cursor, tamano, formato);
+        }
+        Optional<List<LaminaConEstadoResponse>> laminas = laminaService.obtenerPorAlbum(albumId, coleccionistaId);
+        if (FORMATO_COLUMNAS.equals(formato)) {
+            return responderColumnas(albumId, laminas.map(this::convertirAColumnas).orElse(null), null);
+        }
         LaminasResponse respuesta = new LaminasResponse();
 
-        if (laminas == null) {
+        if (laminas.isEmpty()) {
             respuesta.setStatus(404);
             respuesta.setMensaje("No se encontró el álbum con el ID " + albumId);
             respuesta.setDatos(null);
@@ -35,15 +93,98 @@ public class LaminaController {
         }
         respuesta.setStatus(200);
         respuesta.setMensaje("Laminas obtenidas");
-        respuesta.setDatos(laminaService.obtenerPorAlbum(albumId));
+        respuesta.setDatos(laminas.get());
+
+        return ResponseEntity.ok().body(respuesta);
+    }
+
+    /*
+     * Paginación por número: GET /api/laminas/album/{albumId}?cursor={numero}&tamano={n}
+     */
+    private ResponseEntity<Object> obtenerPaginaPorAlbum(Long albumId, Long coleccionistaId, Integer cursor,
+            Integer tamano, String formato) {
+        PaginaLaminas<LaminaConEstadoResponse> pagina = laminaService.obtenerPaginaPorAlbum(albumId,
+                coleccionistaId, cursor, tamano);
+        if (FORMATO_COLUMNAS.equals(formato)) {
+            return pagina == null ? responderColumnas(albumId, null, null)
+                    : responderColumnas(albumId, convertirAColumnas(pagina.getDatos()), pagina.getSiguienteCursor());
+        }
+        LaminasResponse respuesta = new LaminasResponse();
 
+        if (pagina == null) {
+            respuesta.setStatus(404);
+            respuesta.setMensaje("No se encontró el álbum con el ID " + albumId);
+            return ResponseEntity.status(404).body(respuesta);
+        }
+        respuesta.setStatus(200);
+        respuesta.setMensaje("Laminas obtenidas");
+        respuesta.setDatos(pagina.getDatos());
+        respuesta.setSiguienteCursor(pagina.getSiguienteCursor());
         return ResponseEntity.ok().body(respuesta);
     }
 
+    /*
+     * Transmitir las láminas de un álbum como NDJSON -> GET
+     * /api/laminas/album/{albumId} con Accept: application/x-ndjson
+     */
+    @GetMapping(value = "/album/{albumId}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> transmitirPorAlbum(@PathVariable Long albumId,
+            @RequestHeader(name = Coleccionista.CABECERA, defaultValue = Coleccionista.DEFECTO) Long coleccionistaId) {
+        return transmitir(albumId, coleccionistaId, FiltroLaminas.TODAS);
+    }
+
+    /*
+     * Exportar las láminas de un álbum como CSV -> GET /api/laminas/album/{albumId}
+     * con Accept: text/csv. Se escribe fila por fila desde el cursor del repositorio.
+     */
+    @GetMapping(value = "/album/{albumId}", produces = TEXT_CSV)
+    public ResponseEntity<StreamingResponseBody> exportarCsv(@PathVariable Long albumId,
+            @RequestHeader(name = Coleccionista.CABECERA, defaultValue = Coleccionista.DEFECTO) Long coleccionistaId) {
+        if (!laminaService.prepararTransmision(albumId, coleccionistaId)) {
+            return ResponseEntity.notFound().build();
+        }
+        StreamingResponseBody cuerpo = salida -> {
+            try (SequenceWriter escritor = CSV.writer(ESQUEMA_CSV).writeValues(salida)) {
+                laminaService.transmitir(albumId, coleccionistaId, FiltroLaminas.TODAS,
+                        fila -> escritor.write(convertirAFila((LaminaConEstadoResponse) fila)));
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(TEXT_CSV))
+                .varyBy(HttpHeaders.ACCEPT, Coleccionista.CABECERA)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"album-" + albumId + ".csv\"")
+                .body(cuerpo);
+    }
+
+    /*
+     * Importar láminas desde CSV -> POST /api/laminas/album/{albumId}/importar
+     * (Content-Type: text/csv, con encabezado numero,nombre,imagen,adquirida,cantidadRepetidas)
+     */
+    @PostMapping(value = "/album/{albumId}/importar", consumes = TEXT_CSV)
+    public ResponseEntity<Object> importarCsv(@PathVariable Long albumId,
+            @RequestHeader(name = Coleccionista.CABECERA, defaultValue = Coleccionista.DEFECTO) Long coleccionistaId,
+            InputStream cuerpo) {
+        return importar(albumId, coleccionistaId,
+                () -> CSV.readerFor(FilaLaminaRequest.class).with(ESQUEMA_CSV).readValues(cuerpo));
+    }
+
+    /*
+     * Importar láminas desde NDJSON (un objeto JSON por línea) -> POST
+     * /api/laminas/album/{albumId}/importar (Content-Type: application/x-ndjson)
+     */
+    @PostMapping(value = "/album/{albumId}/importar", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Object> importarNdjson(@PathVariable Long albumId,
+            @RequestHeader(name = Coleccionista.CABECERA, defaultValue = Coleccionista.DEFECTO) Long coleccionistaId,
+            InputStream cuerpo) {
+        return importar(albumId, coleccionistaId,
+                () -> objectMapper.readerFor(FilaLaminaRequest.class).readValues(cuerpo));
+    }
+
     /* Obtener una lámina por ID -> GET /api/laminas/{id} */
     @GetMapping("/{id}")
-    public ResponseEntity<Object> obtenerPorId(@PathVariable Long id) {
-        Lamina lamina = laminaService.obtenerPorId(id);
+    public ResponseEntity<Object> obtenerPorId(@PathVariable Long id,
+            @RequestHeader(name = Coleccionista.CABECERA, defaultValue = Coleccionista.DEFECTO) Long coleccionistaId) {
+        LaminaConEstadoResponse lamina = laminaService.obtenerPorId(id, coleccionistaId);
         LaminaResponse respuesta = new LaminaResponse();
 
         if (lamina != null) {
@@ -60,10 +201,19 @@ public class LaminaController {
 
     /* Crear una nueva lámina en un álbum -> POST /api/laminas/album/{albumId} */
     @PostMapping("/album/{albumId}")
-    public ResponseEntity<Object> crear(@PathVariable Long albumId, @RequestBody LaminaRequest request) {
-        Lamina lamina = laminaService.crear(albumId, request);
-
+    public ResponseEntity<Object> crear(@PathVariable Long albumId,
+            @RequestHeader(name = Coleccionista.CABECERA, defaultValue = Coleccionista.DEFECTO) Long coleccionistaId,
+            @RequestBody LaminaRequest request) {
         LaminaResponse respuesta = new LaminaResponse();
+        LaminaConEstadoResponse lamina;
+        try {
+            lamina = laminaService.crear(albumId, coleccionistaId, request);
+        } catch (IllegalArgumentException e) {
+            respuesta.setStatus(400);
+            respuesta.setMensaje(e.getMessage());
+            return ResponseEntity.badRequest().body(respuesta);
+        }
+
         if (lamina != null) {
             respuesta.setStatus(201);
             respuesta.setMensaje("Lámina creada");
@@ -81,18 +231,39 @@ public class LaminaController {
      * /api/laminas/album/{albumId}/multiple
      */
     @PostMapping("/album/{albumId}/multiple")
-    public ResponseEntity<List<Lamina>> crearMultiples(@PathVariable Long albumId,
+    public ResponseEntity<List<LaminaConEstadoResponse>> crearMultiples(@PathVariable Long albumId,
             @RequestBody ListaLaminasRequest request) {
-        List<Lamina> laminas = laminaService.crearMultiples(albumId, request.getNumeros());
+        List<LaminaConEstadoResponse> laminas;
+        try {
+            laminas = laminaService.crearMultiples(albumId, request.getNumeros());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (laminas == null) {
+            return ResponseEntity.notFound().build();
+        }
         return new ResponseEntity<>(laminas, HttpStatus.CREATED);
     }
 
     /* Actualizar una lámina existente -> PUT /api/laminas/{id} */
     @PutMapping("/{id}")
-    public ResponseEntity<LaminaResponse> actualizar(@PathVariable Long id, @RequestBody LaminaRequest request) {
-        Lamina lamina = laminaService.actualizar(id, request);
-
+    public ResponseEntity<LaminaResponse> actualizar(@PathVariable Long id,
+            @RequestHeader(name = Coleccionista.CABECERA, defaultValue = Coleccionista.DEFECTO) Long coleccionistaId,
+            @RequestBody LaminaRequest request) {
         LaminaResponse respuesta = new LaminaResponse();
+        LaminaConEstadoResponse lamina;
+        try {
+            lamina = laminaService.actualizar(id, coleccionistaId, request);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            respuesta.setStatus(409);
+            respuesta.setMensaje("La lámina fue modificada por otra operación. Intenta nuevamente");
+            return ResponseEntity.status(409).body(respuesta);
+        } catch (IllegalArgumentException e) {
+            respuesta.setStatus(400);
+            respuesta.setMensaje(e.getMessage());
+            return ResponseEntity.badRequest().body(respuesta);
+        }
+
         if (lamina != null) {
             respuesta.setStatus(200);
             respuesta.setMensaje("Lámina actualizada");
@@ -108,8 +279,9 @@ public class LaminaController {
     /*Marcar una lámina como adquirida ->PATCH
      * /api/laminas/album/{albumId}/adquirir/{numero}*/
     @PatchMapping("/album/{albumId}/adquirir/{numero}")
-    public ResponseEntity<LaminaResponse> marcarAdquirida(@PathVariable Long albumId, @PathVariable Integer numero) {
-        Lamina lamina = laminaService.marcarAdquirida(albumId, numero);
+    public ResponseEntity<LaminaResponse> marcarAdquirida(@PathVariable Long albumId, @PathVariable Integer numero,
+            @RequestHeader(name = Coleccionista.CABECERA, defaultValue = Coleccionista.DEFECTO) Long coleccionistaId) {
+        LaminaConEstadoResponse lamina = laminaService.marcarAdquirida(albumId, coleccionistaId, numero);
         
         LaminaResponse respuesta = new LaminaResponse();
         if(lamina != null){
@@ -126,8 +298,12 @@ public class LaminaController {
     /*Agregar una lámina repetida -> PATCH
      * /api/laminas/album/{albumId}/repetida/{numero}*/
     @PatchMapping("/album/{albumId}/repetida/{numero}")
-    public ResponseEntity<Object> agregarRepetida(@PathVariable Long albumId, @PathVariable Integer numero) {
-        Lamina lamina = laminaService.agregarRepetida(albumId, numero);
+    public ResponseEntity<Object> agregarRepetida(@PathVariable Long albumId, @PathVariable Integer numero,
+            @RequestHeader(name = Coleccionista.CABECERA, defaultValue = Coleccionista.DEFECTO) Long coleccionistaId) {
+        // Con escritura diferida el toque se suma en memoria y se escribe junto con los demás
+        LaminaConEstadoResponse lamina = repetidasDiferidas.habilitadas()
+                ? repetidasDiferidas.agregarRepetida(albumId, coleccionistaId, numero)
+                : laminaService.agregarRepetida(albumId, coleccionistaId, numero);
 
         LaminaResponse respuesta = new LaminaResponse();
         if (lamina != null) {
@@ -142,17 +318,43 @@ public class LaminaController {
         }
     }
 
+    /*Aplicar varias operaciones (adquirir, agregar o quitar repetida) en una sola
+     * transacción -> PATCH /api/laminas/album/{albumId}/lote*/
+    @PatchMapping("/album/{albumId}/lote")
+    public ResponseEntity<ResultadosOperacionesResponse> aplicarOperaciones(@PathVariable Long albumId,
+            @RequestHeader(name = Coleccionista.CABECERA, defaultValue = Coleccionista.DEFECTO) Long coleccionistaId,
+            @RequestBody LoteOperacionesRequest request) {
+        ResultadosOperacionesResponse respuesta = new ResultadosOperacionesResponse();
+        if (request.getOperaciones() == null || request.getOperaciones().isEmpty()) {
+            respuesta.setStatus(400);
+            respuesta.setMensaje("Debe enviar al menos una operación");
+            return ResponseEntity.status(400).body(respuesta);
+        }
+
+        List<ResultadoOperacionResponse> resultados = laminaService.aplicarOperaciones(albumId, coleccionistaId,
+                request.getOperaciones());
+        if (resultados == null) {
+            respuesta.setStatus(404);
+            respuesta.setMensaje("No se encontró el álbum con el ID " + albumId);
+            return ResponseEntity.status(404).body(respuesta);
+        }
+        respuesta.setStatus(200);
+        respuesta.setMensaje("Operaciones aplicadas");
+        respuesta.setDatos(resultados);
+        return ResponseEntity.ok().body(respuesta);
+    }
+
     /* Eliminar una lámina -> DELETE /api/laminas/{id} */
     @DeleteMapping("/{id}")
-    public ResponseEntity<LaminaResponse> eliminar(@PathVariable Long id) {
+    public ResponseEntity<LaminaResponse> eliminar(@PathVariable Long id,
+            @RequestHeader(name = Coleccionista.CABECERA, defaultValue = Coleccionista.DEFECTO) Long coleccionistaId) {
         LaminaResponse respuesta = new LaminaResponse();
 
-        if (laminaService.obtenerPorId(id) == null) {
+        if (laminaService.eliminar(id, coleccionistaId) == null) {
             respuesta.setStatus(404);
             respuesta.setMensaje("Lámina de id " + id + " no encontrada");
             return ResponseEntity.status(404).body(respuesta);
         }
-        laminaService.eliminar(id);
         respuesta.setStatus(200);
         respuesta.setMensaje("Lámina eliminada");
         return ResponseEntity.ok().body(respuesta);
@@ -161,24 +363,258 @@ public class LaminaController {
     /*Obtener láminas faltantes de un álbum -> GET
      * /api/laminas/album/{albumId}/faltantes*/
     @GetMapping("/album/{albumId}/faltantes")
-    public ResponseEntity<List<Lamina>> obtenerFaltantes(@PathVariable Long albumId) {
-        try {
-            List<Lamina> faltantes = laminaService.obtenerFaltantes(albumId);
-            return ResponseEntity.ok(faltantes);
-        } catch (RuntimeException e) {
+    public ResponseEntity<Object> obtenerFaltantes(@PathVariable Long albumId,
+            @RequestParam(required = false) Integer cursor, @RequestParam(required = false) Integer tamano,
+            @RequestParam(required = false) String formato,
+            @RequestHeader(name = Coleccionista.CABECERA, defaultValue = Coleccionista.DEFECTO) Long coleccionistaId,
+            WebRequest webRequest) {
+        if (noModificado(albumId, coleccionistaId, webRequest)) {
+            return null;
+        }
+        if (cursor != null || tamano != null) {
+            PaginaLaminas<LaminaConEstadoResponse> pagina = laminaService.obtenerPaginaFaltantes(albumId,
+                    coleccionistaId, cursor, tamano);
+            if (pagina == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return responderPagina(pagina, FORMATO_COLUMNAS.equals(formato)
+                    ? convertirAColumnas(pagina.getDatos()) : pagina.getDatos());
+        }
+        Optional<List<LaminaConEstadoResponse>> faltantes = laminaService.obtenerFaltantes(albumId,
+                coleccionistaId);
+        if (faltantes.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(FORMATO_COLUMNAS.equals(formato)
+                ? convertirAColumnas(faltantes.get()) : faltantes.get());
+    }
+
+    /*Obtener solo los números de las láminas faltantes -> GET
+     * /api/laminas/album/{albumId}/faltantes/numeros*/
+    @GetMapping("/album/{albumId}/faltantes/numeros")
+    public ResponseEntity<int[]> obtenerNumerosFaltantes(@PathVariable Long albumId,
+            @RequestHeader(name = Coleccionista.CABECERA, defaultValue = Coleccionista.DEFECTO) Long coleccionistaId,
+            WebRequest webRequest) {
+        if (noModificado(albumId, coleccionistaId, webRequest)) {
+            return null;
+        }
+        int[] faltantes = laminaService.obtenerNumerosFaltantes(albumId, coleccionistaId);
+        if (faltantes == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(faltantes);
+    }
+
+    /*Consultar si una lámina está adquirida -> GET
+     * /api/laminas/album/{albumId}/adquirida/{numero}*/
+    @GetMapping("/album/{albumId}/adquirida/{numero}")
+    public ResponseEntity<EstadoNumeroResponse> consultarNumero(@PathVariable Long albumId,
+            @PathVariable Integer numero,
+            @RequestHeader(name = Coleccionista.CABECERA, defaultValue = Coleccionista.DEFECTO) Long coleccionistaId) {
+        EstadoNumeroResponse estado = laminaService.consultarNumero(albumId, coleccionistaId, numero);
+        if (estado == null) {
             return ResponseEntity.notFound().build();
         }
+        return ResponseEntity.ok(estado);
     }
 
     /*Obtener láminas repetidas de un álbum con sus cantidades -> GET
      * /api/laminas/album/{albumId}/repetidas*/
     @GetMapping("/album/{albumId}/repetidas")
-    public ResponseEntity<List<LaminaRepetidaResponse>> obtenerRepetidas(@PathVariable Long albumId) {
-        try {
-            List<LaminaRepetidaResponse> repetidas = laminaService.obtenerRepetidas(albumId);
-            return ResponseEntity.ok(repetidas);
-        } catch (RuntimeException e) {
+    public ResponseEntity<Object> obtenerRepetidas(@PathVariable Long albumId,
+            @RequestParam(required = false) Integer cursor, @RequestParam(required = false) Integer tamano,
+            @RequestParam(required = false) String formato,
+            @RequestHeader(name = Coleccionista.CABECERA, defaultValue = Coleccionista.DEFECTO) Long coleccionistaId,
+            WebRequest webRequest) {
+        if (noModificado(albumId, coleccionistaId, webRequest)) {
+            return null;
+        }
+        if (cursor != null || tamano != null) {
+            PaginaLaminas<LaminaRepetidaResponse> pagina = laminaService.obtenerPaginaRepetidas(albumId,
+                    coleccionistaId, cursor, tamano);
+            if (pagina == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return responderPagina(pagina, FORMATO_COLUMNAS.equals(formato)
+                    ? convertirRepetidasAColumnas(pagina.getDatos()) : pagina.getDatos());
+        }
+        Optional<List<LaminaRepetidaResponse>> repetidas = laminaService.obtenerRepetidas(albumId,
+                coleccionistaId);
+        if (repetidas.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(FORMATO_COLUMNAS.equals(formato)
+                ? convertirRepetidasAColumnas(repetidas.get()) : repetidas.get());
+    }
+
+    /* Transmitir láminas faltantes como NDJSON */
+    @GetMapping(value = "/album/{albumId}/faltantes", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> transmitirFaltantes(@PathVariable Long albumId,
+            @RequestHeader(name = Coleccionista.CABECERA, defaultValue = Coleccionista.DEFECTO) Long coleccionistaId) {
+        return transmitir(albumId, coleccionistaId, FiltroLaminas.FALTANTES);
+    }
+
+    /* Transmitir láminas repetidas como NDJSON */
+    @GetMapping(value = "/album/{albumId}/repetidas", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> transmitirRepetidas(@PathVariable Long albumId,
+            @RequestHeader(name = Coleccionista.CABECERA, defaultValue = Coleccionista.DEFECTO) Long coleccionistaId) {
+        return transmitir(albumId, coleccionistaId, FiltroLaminas.REPETIDAS);
+    }
+
+    /*
+     * Consulta condicional: la ETag combina la versión del álbum (cambia con el
+     * catálogo) y la de la colección del coleccionista (cambia con su estado). Si
+     * coincide con If-None-Match se responde 304 sin cargar las láminas. Si el
+     * álbum no existe sigue el flujo normal (404). Es débil (W/) porque la misma
+     * versión se sirve en JSON, por columnas, CBOR o Smile, y con gzip; Tomcat no
+     * comprime respuestas con ETag fuerte. Como la ETag no distingue el formato ni
+     * la URL al coleccionista, la respuesta (también el 304) lleva Vary: Accept,
+     * X-Coleccionista para que un caché no sirva una representación por otra.
+     */
+    private boolean noModificado(Long albumId, Long coleccionistaId, WebRequest webRequest) {
+        if (webRequest instanceof ServletWebRequest servlet && servlet.getResponse() != null) {
+            HttpServletResponse respuestaHttp = servlet.getResponse();
+            respuestaHttp.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            respuestaHttp.addHeader(HttpHeaders.VARY, Coleccionista.CABECERA);
+        }
+        String version = laminaService.obtenerVersionColeccion(albumId, coleccionistaId);
+        return version != null
+                && webRequest.checkNotModified("W/\"" + albumId + "-" + coleccionistaId + "-" + version + "\"");
+    }
+
+    /* Responder una página (como lista o por columnas) con el cursor siguiente en la cabecera X-Siguiente-Cursor */
+    private ResponseEntity<Object> responderPagina(PaginaLaminas<?> pagina, Object cuerpo) {
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok();
+        if (pagina.getSiguienteCursor() != null) {
+            respuesta.header(CABECERA_SIGUIENTE_CURSOR, String.valueOf(pagina.getSiguienteCursor()));
+        }
+        return respuesta.body(cuerpo);
+    }
+
+    /* Mismo sobre que LaminasResponse, con las láminas por columnas; columnas null si el álbum no existe */
+    private ResponseEntity<Object> responderColumnas(Long albumId, LaminasColumnas columnas,
+            Integer siguienteCursor) {
+        LaminasColumnasResponse respuesta = new LaminasColumnasResponse();
+        if (columnas == null) {
+            respuesta.setStatus(404);
+            respuesta.setMensaje("No se encontró el álbum con el ID " + albumId);
+            return ResponseEntity.status(404).body(respuesta);
+        }
+        respuesta.setStatus(200);
+        respuesta.setMensaje("Laminas obtenidas");
+        respuesta.setDatos(columnas);
+        respuesta.setSiguienteCursor(siguienteCursor);
+        return ResponseEntity.ok().body(respuesta);
+    }
+
+    /* Las filas se leen a medida que el servicio las consume, sin cargar el archivo en memoria */
+    private ResponseEntity<Object> importar(Long albumId, Long coleccionistaId,
+            Supplier<MappingIterator<FilaLaminaRequest>> lector) {
+        ImportacionResponse respuesta;
+        try (MappingIterator<FilaLaminaRequest> filas = lector.get()) {
+            respuesta = laminaService.importar(albumId, coleccionistaId, filas);
+        } catch (JacksonException e) {
+            respuesta = new ImportacionResponse();
+            respuesta.setStatus(400);
+            respuesta.setMensaje("Archivo inválido: " + e.getOriginalMessage());
+            return ResponseEntity.badRequest().body(respuesta);
+        }
+
+        if (respuesta == null) {
+            respuesta = new ImportacionResponse();
+            respuesta.setStatus(404);
+            respuesta.setMensaje("No se encontró el álbum con el ID " + albumId);
+            return ResponseEntity.status(404).body(respuesta);
+        }
+        respuesta.setStatus(200);
+        respuesta.setMensaje("Láminas importadas");
+        return ResponseEntity.ok().body(respuesta);
+    }
+
+    private FilaLaminaRequest convertirAFila(LaminaConEstadoResponse lamina) {
+        FilaLaminaRequest fila = new FilaLaminaRequest();
+        fila.setNumero(lamina.getNumero());
+        fila.setNombre(lamina.getNombre());
+        fila.setImagen(lamina.getImagen());
+        fila.setAdquirida(lamina.getAdquirida());
+        fila.setCantidadRepetidas(lamina.getCantidadRepetidas());
+        return fila;
+    }
+
+    private LaminasColumnas convertirAColumnas(List<LaminaConEstadoResponse> laminas) {
+        int tamano = laminas.size();
+        LaminasColumnas columnas = new LaminasColumnas();
+        columnas.setId(new long[tamano]);
+        columnas.setNumero(new int[tamano]);
+        columnas.setAdquirida(new boolean[tamano]);
+        columnas.setCantidadRepetidas(new int[tamano]);
+        String[] nombres = new String[tamano];
+        String[] imagenes = new String[tamano];
+        for (int i = 0; i < tamano; i++) {
+            LaminaConEstadoResponse lamina = laminas.get(i);
+            columnas.getId()[i] = lamina.getId();
+            columnas.getNumero()[i] = lamina.getNumero();
+            columnas.getAdquirida()[i] = Boolean.TRUE.equals(lamina.getAdquirida());
+            columnas.getCantidadRepetidas()[i] = lamina.getCantidadRepetidas() == null ? 0
+                    : lamina.getCantidadRepetidas();
+            nombres[i] = nombrePropio(lamina.getNumero(), lamina.getNombre());
+            imagenes[i] = lamina.getImagen();
+        }
+        columnas.setNombre(columnaOpcional(nombres));
+        columnas.setImagen(columnaOpcional(imagenes));
+        return columnas;
+    }
+
+    /* Las repetidas están adquiridas y no llevan imagen: solo id, número, cantidad y nombres propios */
+    private LaminasColumnas convertirRepetidasAColumnas(List<LaminaRepetidaResponse> laminas) {
+        int tamano = laminas.size();
+        LaminasColumnas columnas = new LaminasColumnas();
+        columnas.setId(new long[tamano]);
+        columnas.setNumero(new int[tamano]);
+        columnas.setCantidadRepetidas(new int[tamano]);
+        String[] nombres = new String[tamano];
+        for (int i = 0; i < tamano; i++) {
+            LaminaRepetidaResponse lamina = laminas.get(i);
+            columnas.getId()[i] = lamina.getId();
+            columnas.getNumero()[i] = lamina.getNumero();
+            columnas.getCantidadRepetidas()[i] = lamina.getCantidadRepetidas();
+            nombres[i] = nombrePropio(lamina.getNumero(), lamina.getNombre());
+        }
+        columnas.setNombre(columnaOpcional(nombres));
+        return columnas;
+    }
+
+    /* null si es el nombre que la carga masiva pone por defecto ("Lámina " + número) */
+    private static String nombrePropio(Integer numero, String nombre) {
+        return nombre == null || nombre.equals("Lámina " + numero) ? null : nombre;
+    }
+
+    /* La columna se omite si todos sus valores son null */
+    private static String[] columnaOpcional(String[] valores) {
+        for (String valor : valores) {
+            if (valor != null) {
+                return valores;
+            }
+        }
+        return null;
+    }
+
+    /* Escribir una fila JSON por lámina directamente desde el cursor del repositorio */
+    private ResponseEntity<StreamingResponseBody> transmitir(Long albumId, Long coleccionistaId,
+            FiltroLaminas filtro) {
+        if (!laminaService.prepararTransmision(albumId, coleccionistaId)) {
             return ResponseEntity.notFound().build();
         }
+        StreamingResponseBody cuerpo = salida -> laminaService.transmitir(albumId, coleccionistaId, filtro, fila -> {
+            try {
+                salida.write(objectMapper.writeValueAsBytes(fila));
+                salida.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON)
+                .varyBy(HttpHeaders.ACCEPT, Coleccionista.CABECERA)
+                .body(cuerpo);
     }
 }
@@ -0,0 +1,132 @@
+package com.example.gestion_laminas_albunes_api.jdbc;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Limita cuántas conexiones se piden al pool a la vez. Con hilos virtuales
+ * puede haber miles de peticiones simultáneas: en lugar de que todas compitan
+ * por el pool, esperan en orden en un semáforo justo. El permiso se libera al
+ * cerrar la conexión; si no se obtiene dentro del tiempo máximo se rechaza.
+ */
+public class CompuertaConexiones extends DelegatingDataSource implements MeterBinder {
+
+    private final Semaphore permisos;
+    private final int totalPermisos;
+    private final long esperaMaximaNanos;
+    private final AtomicInteger esperando = new AtomicInteger();
+
+    private volatile Timer espera;
+    private volatile Counter rechazos;
+
+    public CompuertaConexiones(DataSource dataSource, int totalPermisos, Duration esperaMaxima) {
+        super(dataSource);
+        this.permisos = new Semaphore(totalPermisos, true);
+        this.totalPermisos = totalPermisos;
+        this.esperaMaximaNanos = esperaMaxima.toNanos();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        adquirirPermiso();
+        try {
+            return liberarAlCerrar(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permisos.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        adquirirPermiso();
+        try {
+            return liberarAlCerrar(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permisos.release();
+            throw e;
+        }
+    }
+
+    private void adquirirPermiso() throws SQLException {
+        long inicio = System.nanoTime();
+        boolean adquirido;
+        esperando.incrementAndGet();
+        try {
+            adquirido = permisos.tryAcquire(esperaMaximaNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrumpido esperando una conexión", e);
+        } finally {
+            esperando.decrementAndGet();
+        }
+
+        Timer timer = espera;
+        if (timer != null) {
+            timer.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        }
+        if (!adquirido) {
+            Counter contador = rechazos;
+            if (contador != null) {
+                contador.increment();
+            }
+            throw new SQLTransientConnectionException("No hay conexiones disponibles después de esperar "
+                    + Duration.ofNanos(esperaMaximaNanos).toMillis() + " ms");
+        }
+    }
+
+    /* Envuelve la conexión para devolver el permiso una sola vez, al cerrarla */
+    private Connection liberarAlCerrar(Connection conexion) {
+        AtomicBoolean liberada = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, (proxy, metodo, argumentos) -> {
+                    if (metodo.getName().equals("close") && liberada.compareAndSet(false, true)) {
+                        try {
+                            return metodo.invoke(conexion, argumentos);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        } finally {
+                            permisos.release();
+                        }
+                    }
+                    try {
+                        return metodo.invoke(conexion, argumentos);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        espera = Timer.builder("jdbc.connections.gate.wait")
+                .description("Tiempo de espera en la compuerta antes de pedir una conexión al pool")
+                .publishPercentileHistogram()
+                .register(registry);
+        rechazos = Counter.builder("jdbc.connections.gate.rejected")
+                .description("Peticiones de conexión rechazadas por superar la espera máxima")
+                .register(registry);
+        Gauge.builder("jdbc.connections.gate.waiting", esperando, AtomicInteger::get)
+                .description("Hilos esperando un permiso de conexión")
+                .register(registry);
+        Gauge.builder("jdbc.connections.gate.active", permisos, p -> totalPermisos - p.availablePermits())
+                .description("Permisos de conexión en uso")
+                .register(registry);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.gestion_laminas_albunes_api.jdbc;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/*
+ * Compuerta de conexiones JDBC, activa solo cuando las peticiones se
+ * atienden con hilos virtuales (spring.threads.virtual.enabled=true). Envuelve
+ * al pool antes que EnrutadorLecturas, así el permiso se toma recién cuando se
+ * abre la conexión física a la primaria.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class CompuertaConexionesConfig {
+
+    @Bean
+    public static BeanPostProcessor compuertaConexionesPostProcessor(Environment environment) {
+        class CompuertaPostProcessor implements BeanPostProcessor, Ordered {
+            @Override
+            public int getOrder() {
+                return Ordered.HIGHEST_PRECEDENCE;
+            }
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof CompuertaConexiones)) {
+                    int permisos = environment.getProperty("app.jdbc.compuerta.permisos", Integer.class, 10);
+                    Duration esperaMaxima = environment.getProperty("app.jdbc.compuerta.espera-maxima",
+                            Duration.class, Duration.ofSeconds(10));
+                    return new CompuertaConexiones(dataSource, permisos, esperaMaxima);
+                }
+                return bean;
+            }
+        }
+        return new CompuertaPostProcessor();
+    }
+
+    @Bean
+    public MeterBinder metricasCompuertaConexiones(DataSource dataSource) throws SQLException {
+        // Una referencia al método y no la compuerta: un DataSource como bean lo volverían a envolver
+        return dataSource.unwrap(CompuertaConexiones.class)::bindTo;
+    }
+}
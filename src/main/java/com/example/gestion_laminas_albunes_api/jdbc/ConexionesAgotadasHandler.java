@@ -0,0 +1,28 @@
+package com.example.gestion_laminas_albunes_api.jdbc;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.thread.Threading;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.sql.SQLTransientConnectionException;
+
+/* Una petición que no consiguió conexión a tiempo responde 503 para que el cliente reintente */
+@RestControllerAdvice
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class ConexionesAgotadasHandler {
+
+    @ExceptionHandler({ DataAccessResourceFailureException.class, CannotCreateTransactionException.class })
+    public ResponseEntity<Void> conexionesAgotadas(RuntimeException e) {
+        if (!(NestedExceptionUtils.getRootCause(e) instanceof SQLTransientConnectionException)) {
+            throw e;
+        }
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.gestion_laminas_albunes_api.jdbc;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/*
+ * Envuelve al pool principal y pide la conexión física recién en la primera
+ * sentencia, cuando ya se sabe si la transacción es de solo lectura. Las de
+ * solo lectura van a la réplica (si está configurada); el resto, a la primaria.
+ * Después de una escritura, las lecturas del mismo coleccionista siguen yendo a
+ * la primaria durante la ventana configurada, así siempre ve sus propios cambios
+ * aunque la réplica vaya atrasada. Una lectura que acaba de escribir por su
+ * cuenta (repetidas diferidas) también se puede enviar a la primaria.
+ */
+public class EnrutadorLecturas extends LazyConnectionDataSourceProxy implements MeterBinder, AutoCloseable {
+
+    // Coleccionista de la petición en curso (lo asigna EnrutadorLecturasConfig); null fuera de una petición
+    private static final ThreadLocal<Long> COLECCIONISTA = new ThreadLocal<>();
+
+    // La transacción de lectura en curso debe ver escrituras recién confirmadas por este hilo
+    private static final ThreadLocal<Boolean> PRIMARIA = new ThreadLocal<>();
+
+    private final HikariDataSource replica;
+    private final Cache<Long, Boolean> escriturasRecientes;
+
+    private volatile Counter lecturasEnReplica;
+    private volatile Counter lecturasEnPrimaria;
+
+    public EnrutadorLecturas(DataSource primaria, HikariDataSource replica, Duration ventanaLecturaPropia) {
+        super(primaria);
+        this.replica = replica;
+        this.escriturasRecientes = Caffeine.newBuilder()
+                .expireAfterWrite(ventanaLecturaPropia)
+                .maximumSize(100_000)
+                .build();
+        if (replica != null) {
+            setReadOnlyDataSource(new LecturasConPropiasEscrituras());
+        }
+    }
+
+    public static Long coleccionistaActual() {
+        return COLECCIONISTA.get();
+    }
+
+    public static void asignarColeccionista(Long coleccionistaId) {
+        if (coleccionistaId == null) {
+            COLECCIONISTA.remove();
+        } else {
+            COLECCIONISTA.set(coleccionistaId);
+        }
+    }
+
+    /* Las próximas conexiones de lectura de este hilo van a la primaria, hasta llamar con false */
+    public static void lecturasEnPrimaria(boolean primaria) {
+        if (primaria) {
+            PRIMARIA.set(Boolean.TRUE);
+        } else {
+            PRIMARIA.remove();
+        }
+    }
+
+    /* El coleccionista escribió: sus lecturas van a la primaria hasta que venza la ventana */
+    public void escrituraDe(Long coleccionistaId) {
+        escriturasRecientes.put(coleccionistaId, Boolean.TRUE);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (replica == null) {
+            return;
+        }
+        // Métricas hikaricp.* del pool de la réplica (el pool arranca con la primera lectura, después de esto)
+        replica.setMetricRegistry(registry);
+        lecturasEnReplica = Counter.builder("jdbc.connections.read.routed")
+                .description("Conexiones de solo lectura abiertas, por destino")
+                .tag("destino", "replica")
+                .register(registry);
+        lecturasEnPrimaria = Counter.builder("jdbc.connections.read.routed")
+                .description("Conexiones de solo lectura abiertas, por destino")
+                .tag("destino", "primaria")
+                .register(registry);
+    }
+
+    @Override
+    public void close() {
+        if (replica != null) {
+            replica.close();
+        }
+        try {
+            if (getTargetDataSource().isWrapperFor(HikariDataSource.class)) {
+                getTargetDataSource().unwrap(HikariDataSource.class).close();
+            }
+        } catch (SQLException e) {
+            // No es un pool de Hikari: no hay nada que cerrar
+        }
+    }
+
+    private DataSource destinoLectura() {
+        Long coleccionistaId = COLECCIONISTA.get();
+        if (PRIMARIA.get() != null
+                || (coleccionistaId != null && escriturasRecientes.getIfPresent(coleccionistaId) != null)) {
+            contar(lecturasEnPrimaria);
+            return obtainTargetDataSource();
+        }
+        contar(lecturasEnReplica);
+        return replica;
+    }
+
+    private static void contar(Counter contador) {
+        if (contador != null) {
+            contador.increment();
+        }
+    }
+
+    /* Destino de las conexiones de solo lectura: la réplica, o la primaria si el coleccionista escribió hace poco */
+    private final class LecturasConPropiasEscrituras extends AbstractDataSource {
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return destinoLectura().getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return destinoLectura().getConnection(username, password);
+        }
+    }
+}
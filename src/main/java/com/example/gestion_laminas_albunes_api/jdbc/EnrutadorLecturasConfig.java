@@ -0,0 +1,158 @@
+package com.example.gestion_laminas_albunes_api.jdbc;
+
+import com.example.gestion_laminas_albunes_api.controller.Coleccionista;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/*
+ * Enrutamiento de lecturas a la réplica. La réplica se activa en tiempo de
+ * ejecución con app.datasource.replica.url; sin ella el enrutador solo difiere
+ * la conexión física hasta la primera sentencia y todo va a la primaria.
+ */
+@Configuration
+public class EnrutadorLecturasConfig implements WebMvcConfigurer {
+
+    private final DataSource dataSource;
+
+    public EnrutadorLecturasConfig(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Bean
+    public static BeanPostProcessor enrutadorLecturasPostProcessor(Environment environment) {
+        // Después de la compuerta de conexiones, para quedar por fuera de ella
+        class EnrutadorPostProcessor implements BeanPostProcessor, Ordered {
+            @Override
+            public int getOrder() {
+                return Ordered.LOWEST_PRECEDENCE;
+            }
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource primaria && !(bean instanceof EnrutadorLecturas)) {
+                    Duration ventana = environment.getProperty("app.datasource.replica.ventana-lectura-propia",
+                            Duration.class, Duration.ofSeconds(5));
+                    return new EnrutadorLecturas(primaria, replica(environment), ventana);
+                }
+                return bean;
+            }
+        }
+        return new EnrutadorPostProcessor();
+    }
+
+    private static HikariDataSource replica(Environment environment) {
+        String url = environment.getProperty("app.datasource.replica.url", "");
+        if (url.isBlank()) {
+            return null;
+        }
+        HikariDataSource replica = new HikariDataSource();
+        replica.setPoolName("replica");
+        replica.setJdbcUrl(url);
+        replica.setUsername(environment.getProperty("app.datasource.replica.username"));
+        replica.setPassword(environment.getProperty("app.datasource.replica.password"));
+        replica.setMaximumPoolSize(
+                environment.getProperty("app.datasource.replica.maximum-pool-size", Integer.class, 10));
+        replica.setReadOnly(true);
+        return replica;
+    }
+
+    @Bean
+    public MeterBinder metricasEnrutadorLecturas() throws SQLException {
+        return dataSource.unwrap(EnrutadorLecturas.class)::bindTo;
+    }
+
+    /* El coleccionista de la petición acompaña a las tareas asíncronas (transmisiones y exportaciones) */
+    @Bean
+    public TaskDecorator propagarColeccionista() {
+        return tarea -> {
+            Long coleccionistaId = EnrutadorLecturas.coleccionistaActual();
+            return () -> {
+                EnrutadorLecturas.asignarColeccionista(coleccionistaId);
+                try {
+                    tarea.run();
+                } finally {
+                    EnrutadorLecturas.asignarColeccionista(null);
+                }
+            };
+        };
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry interceptores) {
+        try {
+            interceptores.addInterceptor(new ColeccionistaInterceptor(dataSource.unwrap(EnrutadorLecturas.class)))
+                    .addPathPatterns("/api/**");
+        } catch (SQLException e) {
+            throw new IllegalStateException("El DataSource no pasa por EnrutadorLecturas", e);
+        }
+    }
+
+    /*
+     * Asigna el coleccionista a la petición. Las peticiones que modifican (todo
+     * lo que no es GET ni HEAD) lo marcan como escritor al empezar, por si el
+     * cliente lee antes de que termine, y otra vez al terminar, desde el commit.
+     */
+    private static final class ColeccionistaInterceptor implements AsyncHandlerInterceptor {
+
+        private final EnrutadorLecturas enrutador;
+
+        ColeccionistaInterceptor(EnrutadorLecturas enrutador) {
+            this.enrutador = enrutador;
+        }
+
+        @Override
+        public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+            Long coleccionistaId = coleccionista(request);
+            EnrutadorLecturas.asignarColeccionista(coleccionistaId);
+            if (coleccionistaId != null && modifica(request)) {
+                enrutador.escrituraDe(coleccionistaId);
+            }
+            return true;
+        }
+
+        @Override
+        public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                Object handler) {
+            EnrutadorLecturas.asignarColeccionista(null);
+        }
+
+        @Override
+        public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                Exception ex) {
+            Long coleccionistaId = EnrutadorLecturas.coleccionistaActual();
+            if (coleccionistaId != null && modifica(request)) {
+                enrutador.escrituraDe(coleccionistaId);
+            }
+            EnrutadorLecturas.asignarColeccionista(null);
+        }
+
+        private static boolean modifica(HttpServletRequest request) {
+            return !"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod());
+        }
+
+        // Un valor inválido lo rechaza el controlador; acá solo se deja sin coleccionista
+        private static Long coleccionista(HttpServletRequest request) {
+            String cabecera = request.getHeader(Coleccionista.CABECERA);
+            try {
+                return Long.valueOf(cabecera != null ? cabecera : Coleccionista.DEFECTO);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.gestion_laminas_albunes_api.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Cuenta las sentencias SQL que Hibernate prepara para la petición en curso.
+ * El interceptor de métricas crea un contador por petición y lo asigna al
+ * hilo; las tareas asíncronas de la petición (transmisiones NDJSON y
+ * exportaciones CSV) reciben el mismo contador por el TaskDecorator. Fuera de
+ * una petición (tareas programadas) no se cuenta nada.
+ */
+public class ContadorSentencias implements StatementInspector {
+
+    private static final ThreadLocal<AtomicInteger> CONTADOR = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        AtomicInteger contador = CONTADOR.get();
+        if (contador != null) {
+            contador.incrementAndGet();
+        }
+        return sql;
+    }
+
+    static AtomicInteger actual() {
+        return CONTADOR.get();
+    }
+
+    static void asignar(AtomicInteger contador) {
+        if (contador == null) {
+            CONTADOR.remove();
+        } else {
+            CONTADOR.set(contador);
+        }
+    }
+}
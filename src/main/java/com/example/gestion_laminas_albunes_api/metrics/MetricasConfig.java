@@ -0,0 +1,49 @@
+package com.example.gestion_laminas_albunes_api.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.hibernate.autoconfigure.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/* Métricas por endpoint: sentencias SQL y memoria reservada por petición */
+@Configuration
+public class MetricasConfig implements WebMvcConfigurer {
+
+    private final MeterRegistry registry;
+
+    public MetricasConfig(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer contadorSentenciasCustomizer() {
+        return propiedades -> propiedades.put(AvailableSettings.STATEMENT_INSPECTOR, new ContadorSentencias());
+    }
+
+    /* El contador de sentencias de la petición acompaña a sus tareas asíncronas */
+    @Bean
+    public TaskDecorator propagarContadorSentencias() {
+        return tarea -> {
+            AtomicInteger contador = ContadorSentencias.actual();
+            return () -> {
+                ContadorSentencias.asignar(contador);
+                try {
+                    tarea.run();
+                } finally {
+                    ContadorSentencias.asignar(null);
+                }
+            };
+        };
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry interceptores) {
+        interceptores.addInterceptor(new MetricasPeticionInterceptor(registry)).addPathPatterns("/api/**");
+    }
+}
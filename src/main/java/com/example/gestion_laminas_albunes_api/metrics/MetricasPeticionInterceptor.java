@@ -0,0 +1,87 @@
+package com.example.gestion_laminas_albunes_api.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Registra por endpoint (método + patrón de URI) la cantidad de sentencias SQL
+ * y los bytes reservados en el heap durante cada petición. En las peticiones
+ * asíncronas (transmisiones y exportaciones) el contador de sentencias se
+ * conserva en la petición y se registra al terminar el despacho asíncrono; la
+ * memoria no se registra, porque el trabajo corre en otros hilos.
+ */
+public class MetricasPeticionInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String ATRIBUTO_INICIO_ASIGNACION = MetricasPeticionInterceptor.class.getName() + ".asignacion";
+    private static final String ATRIBUTO_SENTENCIAS = MetricasPeticionInterceptor.class.getName() + ".sentencias";
+
+    private final MeterRegistry registry;
+    private final com.sun.management.ThreadMXBean hilos;
+
+    public MetricasPeticionInterceptor(MeterRegistry registry) {
+        this.registry = registry;
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        this.hilos = bean instanceof com.sun.management.ThreadMXBean sun && sun.isThreadAllocatedMemorySupported()
+                ? sun
+                : null;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // En el despacho asíncrono se retoma el contador del despacho inicial
+        AtomicInteger contador = (AtomicInteger) request.getAttribute(ATRIBUTO_SENTENCIAS);
+        if (contador == null) {
+            contador = new AtomicInteger();
+            request.setAttribute(ATRIBUTO_SENTENCIAS, contador);
+        }
+        ContadorSentencias.asignar(contador);
+        // Con hilos virtuales la JVM no mide la memoria por hilo (devuelve -1)
+        if (hilos != null && !Thread.currentThread().isVirtual()
+                && request.getDispatcherType() == DispatcherType.REQUEST) {
+            request.setAttribute(ATRIBUTO_INICIO_ASIGNACION, hilos.getCurrentThreadAllocatedBytes());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+            Object handler) {
+        request.removeAttribute(ATRIBUTO_INICIO_ASIGNACION);
+        ContadorSentencias.asignar(null);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        Object patron = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = patron != null ? patron.toString() : "UNKNOWN";
+
+        DistributionSummary.builder("http.server.requests.sql.statements")
+                .description("Sentencias SQL ejecutadas por petición")
+                .baseUnit("statements")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(registry)
+                .record(((AtomicInteger) request.getAttribute(ATRIBUTO_SENTENCIAS)).get());
+        ContadorSentencias.asignar(null);
+
+        Object inicio = request.getAttribute(ATRIBUTO_INICIO_ASIGNACION);
+        if (inicio instanceof Long bytesIniciales) {
+            DistributionSummary.builder("http.server.requests.allocation")
+                    .description("Bytes reservados en el heap por petición")
+                    .baseUnit("bytes")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .register(registry)
+                    .record(hilos.getCurrentThreadAllocatedBytes() - bytesIniciales);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.example.gestion_laminas_albunes_api.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.ColumnDefault;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
@@ -14,6 +15,9 @@ import com.fasterxml.jackson.annotation.JsonManagedReference;
 @Table(name = "albumes")
 @Data
 public class Album {
+
+    // Máximo de totalLaminas; los números de lámina van de 1 al total (acota los mapas de bits de completitud)
+    public static final int MAXIMO_LAMINAS = 100_000;
     
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -36,8 +40,21 @@ public class Album {
     
     @Column(length = 1000)
     private String descripcion;
+
+    /* Si el número está entre 1 y el total de láminas (sin total, hasta MAXIMO_LAMINAS) */
+    public boolean admiteNumero(Integer numero) {
+        int total = totalLaminas != null ? Math.min(totalLaminas, MAXIMO_LAMINAS) : MAXIMO_LAMINAS;
+        return numero != null && numero >= 1 && numero <= total;
+    }
     
-    @OneToMany(mappedBy = "album", cascade = CascadeType.ALL, orphanRemoval = true)
+    // Se incrementa con cada cambio del álbum o de sus láminas (ETag de las consultas).
+    // No es @Version: lo actualizan sentencias atómicas, nunca el guardado de la entidad
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private Long version;
+
+    // Sin cascada en JPA: al borrar el álbum, la clave foránea (ON DELETE CASCADE) borra sus láminas
+    @OneToMany(mappedBy = "album")
     @JsonManagedReference
     private List<Lamina> laminas = new ArrayList<>();
 
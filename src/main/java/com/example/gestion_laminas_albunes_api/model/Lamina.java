@@ -4,12 +4,16 @@ import com.fasterxml.jackson.annotation.JsonBackReference;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
 
+/* Lámina del catálogo de un álbum, compartida por todos los coleccionistas (su estado está en LaminaColeccion) */
 @Entity
 @Table(
     name = "laminas",
     uniqueConstraints = {
-        @UniqueConstraint(columnNames = {"album_id", "numero"})
+        @UniqueConstraint(name = "uk_laminas_album_numero", columnNames = {"album_id", "numero"})
     }
 )
 @Data
@@ -28,14 +32,14 @@ public class Lamina {
     @Column(length = 500)
     private String imagen; // URL o ruta de la foto de la lámina (opcional)
     
-    @Column(nullable = false, name = "adquirida")
-    private Boolean adquirida = false; // Indica si la lámina ha sido adquirida
-    
-    @Column(name = "cantidad_repetidas", nullable = false)
-    private Integer cantidadRepetidas = 0;
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version = 0L; // Control de concurrencia optimista para las actualizaciones del catálogo
     
     @ManyToOne(fetch = FetchType.LAZY)
     @JsonBackReference
-    @JoinColumn(name = "album_id", nullable = false)
+    @JoinColumn(name = "album_id", nullable = false, foreignKey = @ForeignKey(name = "fk_laminas_album"))
+    @OnDelete(action = OnDeleteAction.CASCADE) // La base de datos borra las láminas junto con el álbum
     private Album album;
 }
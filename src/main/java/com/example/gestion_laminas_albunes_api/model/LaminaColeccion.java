@@ -0,0 +1,45 @@
+package com.example.gestion_laminas_albunes_api.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.io.Serializable;
+
+/*
+ * Estado de una lámina del catálogo en la colección de un coleccionista. Solo
+ * hay fila para las láminas que tiene o tuvo: sin fila, no está adquirida y no
+ * tiene repetidas.
+ */
+@Entity
+@Table(name = "laminas_coleccion")
+@IdClass(LaminaColeccion.Clave.class)
+@Data
+public class LaminaColeccion {
+
+    @Id
+    @Column(name = "coleccionista_id")
+    private Long coleccionistaId;
+
+    @Id
+    @Column(name = "lamina_id")
+    private Long laminaId;
+
+    @ColumnDefault("false")
+    @Column(nullable = false)
+    private Boolean adquirida = false;
+
+    @ColumnDefault("0")
+    @Column(name = "cantidad_repetidas", nullable = false)
+    private Integer cantidadRepetidas = 0;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Clave implements Serializable {
+        private Long coleccionistaId;
+        private Long laminaId;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.gestion_laminas_albunes_api.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/* Fila de la búsqueda de álbumes: datos de resumen y relevancia respecto del texto buscado */
+public interface AlbumBusqueda {
+
+    Long getId();
+
+    String getNombre();
+
+    String getImagen();
+
+    LocalDate getFechaLanzamiento();
+
+    String getTipoLaminas();
+
+    Integer getTotalLaminas();
+
+    String getDescripcion();
+
+    BigDecimal getRelevancia();
+}
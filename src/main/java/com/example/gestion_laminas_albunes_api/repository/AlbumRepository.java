@@ -1,17 +1,86 @@
 package com.example.gestion_laminas_albunes_api.repository;
 
 import com.example.gestion_laminas_albunes_api.model.Album;
+import com.example.gestion_laminas_albunes_api.response.AlbumResumenResponse;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface AlbumRepository extends JpaRepository<Album, Long> {
     
-    // Buscar álbumes por nombre (búsqueda parcial)
-    List<Album> findByNombreContainingIgnoreCase(String nombre);
-    
-    // Buscar álbumes por tipo de láminas
-    List<Album> findByTipoLaminas(String tipoLaminas);
+    // Listar álbumes como resumen, sin cargar la colección de láminas
+    @Query("SELECT new com.example.gestion_laminas_albunes_api.response.AlbumResumenResponse("
+            + "a.id, a.nombre, a.imagen, a.fechaLanzamiento, a.tipoLaminas, a.totalLaminas, a.descripcion) "
+            + "FROM Album a")
+    List<AlbumResumenResponse> findAllResumen();
+
+    // Buscar álbumes por texto en nombre y descripción (índices de trigramas), con filtros,
+    // ordenados por relevancia. Paginación por (relevancia, id) del último resultado entregado
+    @Query(value = "SELECT * FROM (SELECT a.id, a.nombre, a.imagen, a.fecha_lanzamiento AS \"fechaLanzamiento\", "
+            + "a.tipo_laminas AS \"tipoLaminas\", a.total_laminas AS \"totalLaminas\", a.descripcion, "
+            + "ROUND(CAST(GREATEST(word_similarity(:texto, a.nombre), "
+            + "word_similarity(:texto, COALESCE(a.descripcion, '')) * 0.5) AS numeric), 4) AS relevancia "
+            + "FROM albumes a "
+            + "WHERE (a.nombre ILIKE :patron OR a.descripcion ILIKE :patron "
+            + "OR :texto <% a.nombre OR :texto <% a.descripcion) "
+            + "AND (CAST(:tipo AS text) IS NULL OR a.tipo_laminas = CAST(:tipo AS text)) "
+            + "AND (CAST(:desde AS date) IS NULL OR a.fecha_lanzamiento >= CAST(:desde AS date)) "
+            + "AND (CAST(:hasta AS date) IS NULL OR a.fecha_lanzamiento <= CAST(:hasta AS date))) r "
+            + "WHERE CAST(:cursorRelevancia AS numeric) IS NULL "
+            + "OR r.relevancia < CAST(:cursorRelevancia AS numeric) "
+            + "OR (r.relevancia = CAST(:cursorRelevancia AS numeric) AND r.id > CAST(:cursorId AS bigint)) "
+            + "ORDER BY r.relevancia DESC, r.id LIMIT :limite", nativeQuery = true)
+    List<AlbumBusqueda> buscarPorTexto(@Param("texto") String texto, @Param("patron") String patron,
+            @Param("tipo") String tipo, @Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta,
+            @Param("cursorRelevancia") BigDecimal cursorRelevancia, @Param("cursorId") Long cursorId,
+            @Param("limite") int limite);
+
+    // Buscar álbumes solo con filtros, ordenados por ID (paginación por ID)
+    @Query(value = "SELECT a.id, a.nombre, a.imagen, a.fecha_lanzamiento AS \"fechaLanzamiento\", "
+            + "a.tipo_laminas AS \"tipoLaminas\", a.total_laminas AS \"totalLaminas\", a.descripcion, "
+            + "CAST(NULL AS numeric) AS relevancia "
+            + "FROM albumes a "
+            + "WHERE (CAST(:tipo AS text) IS NULL OR a.tipo_laminas = CAST(:tipo AS text)) "
+            + "AND (CAST(:desde AS date) IS NULL OR a.fecha_lanzamiento >= CAST(:desde AS date)) "
+            + "AND (CAST(:hasta AS date) IS NULL OR a.fecha_lanzamiento <= CAST(:hasta AS date)) "
+            + "AND (CAST(:cursorId AS bigint) IS NULL OR a.id > CAST(:cursorId AS bigint)) "
+            + "ORDER BY a.id LIMIT :limite", nativeQuery = true)
+    List<AlbumBusqueda> buscarConFiltros(@Param("tipo") String tipo, @Param("desde") LocalDate desde,
+            @Param("hasta") LocalDate hasta, @Param("cursorId") Long cursorId, @Param("limite") int limite);
+
+    // Versión del álbum (vacía si no existe)
+    @Query("SELECT a.version FROM Album a WHERE a.id = :id")
+    Optional<Long> findVersion(@Param("id") Long id);
+
+    // Versión del álbum (catálogo) y de la colección del coleccionista, "album-coleccion" (vacío si no existe)
+    @Query(value = "SELECT a.version || '-' || COALESCE(c.version, 0) FROM albumes a "
+            + "LEFT JOIN colecciones c ON c.album_id = a.id AND c.coleccionista_id = :coleccionistaId "
+            + "WHERE a.id = :id", nativeQuery = true)
+    Optional<String> findVersionColeccion(@Param("id") Long id, @Param("coleccionistaId") Long coleccionistaId);
+
+    // Versión del álbum y de la colección de cada coleccionista, en una sola consulta (vacía si el álbum no existe)
+    @Query(value = "SELECT k.id AS \"coleccionistaId\", a.version || '-' || COALESCE(c.version, 0) AS version "
+            + "FROM albumes a CROSS JOIN unnest(CAST(:coleccionistas AS bigint[])) AS k(id) "
+            + "LEFT JOIN colecciones c ON c.album_id = a.id AND c.coleccionista_id = k.id "
+            + "WHERE a.id = :id", nativeQuery = true)
+    List<VersionColeccion> findVersionesColecciones(@Param("id") Long id,
+            @Param("coleccionistas") Long[] coleccionistas);
+
+    // Eliminar un álbum en una sola sentencia; sus láminas y colecciones se borran en cascada en la base de datos
+    @Modifying
+    @Query("DELETE FROM Album a WHERE a.id = :id")
+    int eliminarPorId(@Param("id") Long id);
+
+    // Incrementar la versión del álbum en una sola sentencia
+    @Modifying
+    @Query("UPDATE Album a SET a.version = a.version + 1 WHERE a.id = :id")
+    int incrementarVersion(@Param("id") Long id);
 }
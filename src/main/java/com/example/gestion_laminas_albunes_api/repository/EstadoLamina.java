@@ -0,0 +1,11 @@
+package com.example.gestion_laminas_albunes_api.repository;
+
+/* Proyección con el estado de una lámina (consultas de estado y actualizaciones en lote) */
+public interface EstadoLamina {
+
+    Integer getNumero();
+
+    Boolean getAdquirida();
+
+    Integer getCantidadRepetidas();
+}
@@ -0,0 +1,7 @@
+package com.example.gestion_laminas_albunes_api.repository;
+
+/* Estado de una lámina junto con el ID del coleccionista, para consultas de varias colecciones */
+public interface EstadoLaminaColeccionista extends EstadoLamina {
+
+    Long getColeccionistaId();
+}
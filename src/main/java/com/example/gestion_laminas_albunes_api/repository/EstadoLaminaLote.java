@@ -0,0 +1,7 @@
+package com.example.gestion_laminas_albunes_api.repository;
+
+/* Estado final de una lámina tras un lote, con las repetidas que tenía antes de aplicarlo */
+public interface EstadoLaminaLote extends EstadoLamina {
+
+    Integer getRepetidasPrevias();
+}
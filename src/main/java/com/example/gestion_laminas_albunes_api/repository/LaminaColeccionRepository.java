@@ -0,0 +1,98 @@
+package com.example.gestion_laminas_albunes_api.repository;
+
+import com.example.gestion_laminas_albunes_api.model.LaminaColeccion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/*
+ * Estado de las láminas en la colección de cada coleccionista. Las escrituras
+ * son upserts atómicos en una sola sentencia: crean la fila la primera vez que
+ * el coleccionista toca la lámina y nunca modifican el catálogo compartido.
+ */
+@Repository
+public interface LaminaColeccionRepository extends JpaRepository<LaminaColeccion, LaminaColeccion.Clave> {
+
+    /*
+     * Actualizaciones de una lámina (por álbum y número) que devuelven la lámina
+     * con su estado final, o null si el número no está en el catálogo del álbum
+     */
+    @Query(value = "WITH l AS (SELECT * FROM laminas WHERE album_id = :albumId AND numero = :numero), "
+            + "e AS (INSERT INTO laminas_coleccion (coleccionista_id, lamina_id, adquirida, cantidad_repetidas) "
+            + "SELECT :coleccionistaId, l.id, true, 0 FROM l "
+            + "ON CONFLICT (coleccionista_id, lamina_id) DO UPDATE SET adquirida = true RETURNING *) "
+            + "SELECT l.id, l.numero, l.nombre, l.imagen, e.adquirida, "
+            + "e.cantidad_repetidas AS \"cantidadRepetidas\", l.version "
+            + "FROM l JOIN e ON e.lamina_id = l.id", nativeQuery = true)
+    LaminaConEstado marcarAdquirida(@Param("albumId") Long albumId, @Param("numero") Integer numero,
+            @Param("coleccionistaId") Long coleccionistaId);
+
+    @Query(value = "WITH l AS (SELECT * FROM laminas WHERE album_id = :albumId AND numero = :numero), "
+            + "e AS (INSERT INTO laminas_coleccion (coleccionista_id, lamina_id, adquirida, cantidad_repetidas) "
+            + "SELECT :coleccionistaId, l.id, false, GREATEST(:delta, 0) FROM l "
+            + "ON CONFLICT (coleccionista_id, lamina_id) DO UPDATE "
+            + "SET cantidad_repetidas = GREATEST(laminas_coleccion.cantidad_repetidas + :delta, 0) RETURNING *) "
+            + "SELECT l.id, l.numero, l.nombre, l.imagen, e.adquirida, "
+            + "e.cantidad_repetidas AS \"cantidadRepetidas\", l.version "
+            + "FROM l JOIN e ON e.lamina_id = l.id", nativeQuery = true)
+    LaminaConEstado sumarRepetidas(@Param("albumId") Long albumId, @Param("numero") Integer numero,
+            @Param("coleccionistaId") Long coleccionistaId, @Param("delta") int delta);
+
+    // Marcar como adquiridas varias láminas de un álbum en una sola sentencia
+    @Query(value = "WITH l AS (SELECT id, numero FROM laminas "
+            + "WHERE album_id = :albumId AND numero = ANY(CAST(:numeros AS integer[]))), "
+            + "e AS (INSERT INTO laminas_coleccion (coleccionista_id, lamina_id, adquirida, cantidad_repetidas) "
+            + "SELECT :coleccionistaId, l.id, true, 0 FROM l "
+            + "ON CONFLICT (coleccionista_id, lamina_id) DO UPDATE SET adquirida = true RETURNING *) "
+            + "SELECT l.numero, e.adquirida, e.cantidad_repetidas AS \"cantidadRepetidas\" "
+            + "FROM l JOIN e ON e.lamina_id = l.id", nativeQuery = true)
+    List<EstadoLamina> marcarAdquiridas(@Param("albumId") Long albumId, @Param("numeros") Integer[] numeros,
+            @Param("coleccionistaId") Long coleccionistaId);
+
+    /*
+     * Aplicar a varias láminas una secuencia de sumas y restas de repetidas en una
+     * sola sentencia. Cada secuencia, con piso 0 en cada paso, equivale a
+     * GREATEST(actual + delta, piso). Devuelve también las repetidas previas y la
+     * adquisición sin cambios (la sentencia no la toca)
+     */
+    @Query(value = "WITH l AS (SELECT l.id, l.numero, d.delta, d.piso FROM laminas l "
+            + "JOIN unnest(CAST(:numeros AS integer[]), CAST(:deltas AS integer[]), CAST(:pisos AS integer[])) "
+            + "AS d(numero, delta, piso) ON l.numero = d.numero WHERE l.album_id = :albumId), "
+            + "p AS (SELECT lamina_id, cantidad_repetidas FROM laminas_coleccion "
+            + "WHERE coleccionista_id = :coleccionistaId AND lamina_id IN (SELECT id FROM l)), "
+            + "e AS (INSERT INTO laminas_coleccion (coleccionista_id, lamina_id, adquirida, cantidad_repetidas) "
+            + "SELECT :coleccionistaId, l.id, false, GREATEST(l.delta, l.piso) FROM l "
+            + "ON CONFLICT (coleccionista_id, lamina_id) DO UPDATE SET cantidad_repetidas = "
+            + "(SELECT GREATEST(laminas_coleccion.cantidad_repetidas + l.delta, l.piso) FROM l "
+            + "WHERE l.id = laminas_coleccion.lamina_id) RETURNING *) "
+            + "SELECT l.numero, e.adquirida, e.cantidad_repetidas AS \"cantidadRepetidas\", "
+            + "COALESCE(p.cantidad_repetidas, 0) AS \"repetidasPrevias\" "
+            + "FROM l JOIN e ON e.lamina_id = l.id LEFT JOIN p ON p.lamina_id = l.id", nativeQuery = true)
+    List<EstadoLaminaLote> sumarRepetidasEnLote(@Param("albumId") Long albumId,
+            @Param("numeros") Integer[] numeros, @Param("deltas") Integer[] deltas, @Param("pisos") Integer[] pisos,
+            @Param("coleccionistaId") Long coleccionistaId);
+
+    // Fijar el estado de una lámina (los valores nulos conservan el actual) y devolver la fila resultante
+    @Query(value = "INSERT INTO laminas_coleccion (coleccionista_id, lamina_id, adquirida, cantidad_repetidas) "
+            + "VALUES (:coleccionistaId, :laminaId, COALESCE(CAST(:adquirida AS boolean), false), "
+            + "GREATEST(COALESCE(CAST(:cantidadRepetidas AS integer), 0), 0)) "
+            + "ON CONFLICT (coleccionista_id, lamina_id) DO UPDATE "
+            + "SET adquirida = COALESCE(CAST(:adquirida AS boolean), laminas_coleccion.adquirida), "
+            + "cantidad_repetidas = GREATEST(COALESCE(CAST(:cantidadRepetidas AS integer), "
+            + "laminas_coleccion.cantidad_repetidas), 0) "
+            + "RETURNING *", nativeQuery = true)
+    LaminaColeccion guardarEstado(@Param("laminaId") Long laminaId, @Param("coleccionistaId") Long coleccionistaId,
+            @Param("adquirida") Boolean adquirida, @Param("cantidadRepetidas") Integer cantidadRepetidas);
+
+    // Versión de la colección del coleccionista en el álbum (ETag); crea la colección la primera vez
+    @Modifying
+    @Query(value = "INSERT INTO colecciones (coleccionista_id, album_id, version) "
+            + "VALUES (:coleccionistaId, :albumId, 1) "
+            + "ON CONFLICT (coleccionista_id, album_id) DO UPDATE SET version = colecciones.version + 1",
+            nativeQuery = true)
+    int incrementarVersion(@Param("albumId") Long albumId, @Param("coleccionistaId") Long coleccionistaId);
+}
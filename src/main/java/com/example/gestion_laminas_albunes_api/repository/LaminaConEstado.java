@@ -0,0 +1,13 @@
+package com.example.gestion_laminas_albunes_api.repository;
+
+/* Proyección con una lámina del catálogo y su estado en la colección de un coleccionista */
+public interface LaminaConEstado extends EstadoLamina {
+
+    Long getId();
+
+    String getNombre();
+
+    String getImagen();
+
+    Long getVersion();
+}
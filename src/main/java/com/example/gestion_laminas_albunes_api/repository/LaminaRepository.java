@@ -1,23 +1,189 @@
 package com.example.gestion_laminas_albunes_api.repository;
 
 import com.example.gestion_laminas_albunes_api.model.Lamina;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+/*
+ * Láminas del catálogo. Las consultas "con estado" cruzan cada lámina con la
+ * colección de un coleccionista: sin fila en laminas_coleccion la lámina falta
+ * y no tiene repetidas.
+ */
 @Repository
 public interface LaminaRepository extends JpaRepository<Lamina, Long> {
-    
-    // Buscar todas las láminas de un álbum específico
-    List<Lamina> findByAlbumId(Long albumId);
-    
-    // Buscar láminas faltantes de un álbum (no adquiridas)
-    List<Lamina> findByAlbumIdAndAdquiridaFalse(Long albumId);
-    
-    // Buscar láminas repetidas de un álbum (cantidad > 0)
-    List<Lamina> findByAlbumIdAndCantidadRepetidasGreaterThan(Long albumId, Integer cantidad);
-    
+
+    String COLUMNAS_CON_ESTADO = "l.id, l.numero, l.nombre, l.imagen, COALESCE(e.adquirida, false) AS adquirida, "
+            + "COALESCE(e.cantidad_repetidas, 0) AS \"cantidadRepetidas\", l.version ";
+
+    String ESTADO_DEL_COLECCIONISTA = "laminas_coleccion e ON e.lamina_id = l.id "
+            + "AND e.coleccionista_id = :coleccionistaId ";
+
+    /*
+     * Faltantes: las láminas sin fila adquirida en la colección (anti-join sobre el
+     * índice parcial idx_laminas_coleccion_adquiridas); de su estado solo pueden
+     * tener repetidas, que salen del índice parcial de repetidas del coleccionista
+     */
+    String REPETIDAS_DEL_COLECCIONISTA = ESTADO_DEL_COLECCIONISTA + "AND e.cantidad_repetidas > 0 ";
+
+    String NO_ADQUIRIDA = "NOT EXISTS (SELECT 1 FROM laminas_coleccion ad "
+            + "WHERE ad.coleccionista_id = :coleccionistaId AND ad.lamina_id = l.id AND ad.adquirida) ";
+
     // Buscar una lámina específica por álbum y número
     Lamina findByAlbumIdAndNumero(Long albumId, Integer numero);
+
+    // Una lámina con su estado en la colección del coleccionista
+    @Query(value = "SELECT " + COLUMNAS_CON_ESTADO + "FROM laminas l LEFT JOIN " + ESTADO_DEL_COLECCIONISTA
+            + "WHERE l.id = :id", nativeQuery = true)
+    Optional<LaminaConEstado> findConEstadoById(@Param("id") Long id,
+            @Param("coleccionistaId") Long coleccionistaId);
+
+    @Query(value = "SELECT " + COLUMNAS_CON_ESTADO + "FROM laminas l LEFT JOIN " + ESTADO_DEL_COLECCIONISTA
+            + "WHERE l.album_id = :albumId AND l.numero = :numero", nativeQuery = true)
+    Optional<LaminaConEstado> findConEstadoByAlbumIdAndNumero(@Param("albumId") Long albumId,
+            @Param("numero") Integer numero, @Param("coleccionistaId") Long coleccionistaId);
+
+    /*
+     * Variantes con LEFT JOIN desde el álbum: en una sola consulta se sabe si el
+     * álbum existe (sin filas) o si solo no tiene láminas (una fila con ID nulo)
+     */
+    @Query(value = "SELECT " + COLUMNAS_CON_ESTADO + "FROM albumes a "
+            + "LEFT JOIN (laminas l LEFT JOIN " + ESTADO_DEL_COLECCIONISTA + ") ON l.album_id = a.id "
+            + "WHERE a.id = :albumId ORDER BY l.numero", nativeQuery = true)
+    List<LaminaConEstado> findByAlbumIdConAlbum(@Param("albumId") Long albumId,
+            @Param("coleccionistaId") Long coleccionistaId);
+
+    @Query(value = "SELECT " + COLUMNAS_CON_ESTADO + "FROM albumes a "
+            + "LEFT JOIN (laminas l LEFT JOIN " + REPETIDAS_DEL_COLECCIONISTA + ") "
+            + "ON l.album_id = a.id AND " + NO_ADQUIRIDA
+            + "WHERE a.id = :albumId ORDER BY l.numero", nativeQuery = true)
+    List<LaminaConEstado> findFaltantesConAlbum(@Param("albumId") Long albumId,
+            @Param("coleccionistaId") Long coleccionistaId);
+
+    @Query(value = "SELECT " + COLUMNAS_CON_ESTADO + "FROM albumes a "
+            + "LEFT JOIN (laminas l JOIN " + REPETIDAS_DEL_COLECCIONISTA + ") "
+            + "ON l.album_id = a.id "
+            + "WHERE a.id = :albumId ORDER BY l.numero", nativeQuery = true)
+    List<LaminaConEstado> findRepetidasConAlbum(@Param("albumId") Long albumId,
+            @Param("coleccionistaId") Long coleccionistaId);
+
+    // Páginas ordenadas por número a partir de un cursor (usa el índice único album_id, numero)
+    @Query(value = "SELECT " + COLUMNAS_CON_ESTADO + "FROM laminas l LEFT JOIN " + ESTADO_DEL_COLECCIONISTA
+            + "WHERE l.album_id = :albumId AND l.numero > :cursor ORDER BY l.numero LIMIT :limite",
+            nativeQuery = true)
+    List<LaminaConEstado> findPagina(@Param("albumId") Long albumId,
+            @Param("coleccionistaId") Long coleccionistaId, @Param("cursor") Integer cursor,
+            @Param("limite") int limite);
+
+    @Query(value = "SELECT " + COLUMNAS_CON_ESTADO + "FROM laminas l LEFT JOIN " + REPETIDAS_DEL_COLECCIONISTA
+            + "WHERE l.album_id = :albumId AND l.numero > :cursor AND " + NO_ADQUIRIDA
+            + "ORDER BY l.numero LIMIT :limite", nativeQuery = true)
+    List<LaminaConEstado> findPaginaFaltantes(@Param("albumId") Long albumId,
+            @Param("coleccionistaId") Long coleccionistaId, @Param("cursor") Integer cursor,
+            @Param("limite") int limite);
+
+    @Query(value = "SELECT " + COLUMNAS_CON_ESTADO + "FROM laminas l JOIN " + REPETIDAS_DEL_COLECCIONISTA
+            + "WHERE l.album_id = :albumId AND l.numero > :cursor "
+            + "ORDER BY l.numero LIMIT :limite", nativeQuery = true)
+    List<LaminaConEstado> findPaginaRepetidas(@Param("albumId") Long albumId,
+            @Param("coleccionistaId") Long coleccionistaId, @Param("cursor") Integer cursor,
+            @Param("limite") int limite);
+
+    // Recorrer las láminas con un cursor de base de datos, sin cargarlas todas en memoria
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(value = "SELECT " + COLUMNAS_CON_ESTADO + "FROM laminas l LEFT JOIN " + ESTADO_DEL_COLECCIONISTA
+            + "WHERE l.album_id = :albumId ORDER BY l.numero", nativeQuery = true)
+    Stream<LaminaConEstado> streamPorAlbum(@Param("albumId") Long albumId,
+            @Param("coleccionistaId") Long coleccionistaId);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(value = "SELECT " + COLUMNAS_CON_ESTADO + "FROM laminas l LEFT JOIN " + REPETIDAS_DEL_COLECCIONISTA
+            + "WHERE l.album_id = :albumId AND " + NO_ADQUIRIDA + "ORDER BY l.numero", nativeQuery = true)
+    Stream<LaminaConEstado> streamFaltantes(@Param("albumId") Long albumId,
+            @Param("coleccionistaId") Long coleccionistaId);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(value = "SELECT " + COLUMNAS_CON_ESTADO + "FROM laminas l JOIN " + REPETIDAS_DEL_COLECCIONISTA
+            + "WHERE l.album_id = :albumId ORDER BY l.numero", nativeQuery = true)
+    Stream<LaminaConEstado> streamRepetidas(@Param("albumId") Long albumId,
+            @Param("coleccionistaId") Long coleccionistaId);
+
+    // Álbum de una lámina (vacío si no existe)
+    @Query("SELECT l.album.id FROM Lamina l WHERE l.id = :id")
+    Optional<Long> findAlbumIdById(@Param("id") Long id);
+
+    // Obtener solo los números de las láminas ya registradas en un álbum
+    @Query("SELECT l.numero FROM Lamina l WHERE l.album.id = :albumId")
+    List<Integer> findNumerosByAlbumId(@Param("albumId") Long albumId);
+
+    // Estado (número, adquirida, repetidas) de todas las láminas de un álbum en una colección, sin cargar entidades
+    @Query(value = "SELECT l.numero, COALESCE(e.adquirida, false) AS adquirida, "
+            + "COALESCE(e.cantidad_repetidas, 0) AS \"cantidadRepetidas\" "
+            + "FROM laminas l LEFT JOIN " + ESTADO_DEL_COLECCIONISTA
+            + "WHERE l.album_id = :albumId", nativeQuery = true)
+    List<EstadoLamina> findEstadosByAlbumId(@Param("albumId") Long albumId,
+            @Param("coleccionistaId") Long coleccionistaId);
+
+    // Estado de las láminas de un álbum en varias colecciones (solo las filas guardadas) en una sola consulta
+    @Query(value = "SELECT e.coleccionista_id AS \"coleccionistaId\", l.numero, e.adquirida, "
+            + "e.cantidad_repetidas AS \"cantidadRepetidas\" "
+            + "FROM laminas_coleccion e JOIN laminas l ON l.id = e.lamina_id "
+            + "WHERE l.album_id = :albumId AND e.coleccionista_id = ANY(CAST(:coleccionistas AS bigint[]))",
+            nativeQuery = true)
+    List<EstadoLaminaColeccionista> findEstadosByAlbumIdAndColeccionistas(@Param("albumId") Long albumId,
+            @Param("coleccionistas") Long[] coleccionistas);
+
+    /*
+     * Coleccionistas del álbum con más repetidas entre los números indicados
+     * (índice parcial de repetidas por lámina), sin contar al que consulta
+     */
+    @Query(value = "SELECT e.coleccionista_id FROM laminas l "
+            + "JOIN laminas_coleccion e ON e.lamina_id = l.id AND e.cantidad_repetidas > 0 "
+            + "WHERE l.album_id = :albumId AND l.numero = ANY(CAST(:numeros AS integer[])) "
+            + "AND e.coleccionista_id <> :coleccionistaId "
+            + "GROUP BY e.coleccionista_id ORDER BY COUNT(*) DESC, e.coleccionista_id LIMIT :limite",
+            nativeQuery = true)
+    List<Long> findColeccionistasConRepetidas(@Param("albumId") Long albumId,
+            @Param("coleccionistaId") Long coleccionistaId, @Param("numeros") Integer[] numeros,
+            @Param("limite") int limite);
+
+    // Insertar varias láminas del catálogo en una sola sentencia (multi-fila) y devolver las filas creadas
+    @Query(value = "INSERT INTO laminas (numero, nombre, version, album_id) "
+            + "SELECT n.numero, 'Lámina ' || n.numero, 0, :albumId "
+            + "FROM unnest(CAST(:numeros AS integer[])) WITH ORDINALITY AS n(numero, orden) "
+            + "ORDER BY n.orden "
+            + "ON CONFLICT (album_id, numero) DO NOTHING "
+            + "RETURNING *", nativeQuery = true)
+    List<Lamina> insertarMultiples(@Param("albumId") Long albumId, @Param("numeros") Integer[] numeros);
+
+    /*
+     * Importar un lote en una sola sentencia: inserta o reemplaza las láminas del
+     * catálogo y guarda su estado en la colección del coleccionista
+     */
+    @Modifying
+    @Query(value = "WITH f AS (SELECT * FROM unnest(CAST(:numeros AS integer[]), CAST(:nombres AS text[]), "
+            + "CAST(:imagenes AS text[]), CAST(:adquiridas AS boolean[]), CAST(:repetidas AS integer[])) "
+            + "AS f(numero, nombre, imagen, adquirida, repetidas)), "
+            + "l AS (INSERT INTO laminas (numero, nombre, imagen, version, album_id) "
+            + "SELECT f.numero, COALESCE(f.nombre, 'Lámina ' || f.numero), f.imagen, 0, :albumId FROM f "
+            + "ON CONFLICT (album_id, numero) DO UPDATE SET nombre = EXCLUDED.nombre, imagen = EXCLUDED.imagen, "
+            + "version = laminas.version + 1 RETURNING id, numero) "
+            + "INSERT INTO laminas_coleccion (coleccionista_id, lamina_id, adquirida, cantidad_repetidas) "
+            + "SELECT :coleccionistaId, l.id, COALESCE(f.adquirida, false), GREATEST(COALESCE(f.repetidas, 0), 0) "
+            + "FROM l JOIN f ON f.numero = l.numero "
+            + "ON CONFLICT (coleccionista_id, lamina_id) DO UPDATE SET adquirida = EXCLUDED.adquirida, "
+            + "cantidad_repetidas = EXCLUDED.cantidad_repetidas", nativeQuery = true)
+    int importarLote(@Param("albumId") Long albumId, @Param("coleccionistaId") Long coleccionistaId,
+            @Param("numeros") Integer[] numeros, @Param("nombres") String[] nombres,
+            @Param("imagenes") String[] imagenes, @Param("adquiridas") Boolean[] adquiridas,
+            @Param("repetidas") Integer[] repetidas);
 }
@@ -0,0 +1,9 @@
+package com.example.gestion_laminas_albunes_api.repository;
+
+/* Versión "album-coleccion" de la colección de un coleccionista en un álbum */
+public interface VersionColeccion {
+
+    Long getColeccionistaId();
+
+    String getVersion();
+}
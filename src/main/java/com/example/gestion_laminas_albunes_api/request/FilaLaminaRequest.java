@@ -0,0 +1,16 @@
+package com.example.gestion_laminas_albunes_api.request;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.Data;
+
+/* Fila de un archivo de láminas (CSV o NDJSON), usada para importar y exportar */
+@Data
+@JsonPropertyOrder({ "numero", "nombre", "imagen", "adquirida", "cantidadRepetidas" })
+public class FilaLaminaRequest {
+    
+    private Integer numero; // Obligatorio
+    private String nombre; // Por defecto "Lámina {numero}"
+    private String imagen;
+    private Boolean adquirida; // Por defecto false
+    private Integer cantidadRepetidas; // Por defecto 0
+}
@@ -0,0 +1,10 @@
+package com.example.gestion_laminas_albunes_api.request;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class LoteOperacionesRequest {
+    
+    private List<OperacionLaminaRequest> operaciones; // Operaciones a aplicar, por ejemplo al abrir un sobre
+}
@@ -0,0 +1,10 @@
+package com.example.gestion_laminas_albunes_api.request;
+
+import lombok.Data;
+
+@Data
+public class OperacionLaminaRequest {
+    
+    private Integer numero; // Número de la lámina en el álbum
+    private TipoOperacionLamina operacion;
+}
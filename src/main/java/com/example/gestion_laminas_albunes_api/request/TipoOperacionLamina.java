@@ -0,0 +1,8 @@
+package com.example.gestion_laminas_albunes_api.request;
+
+/* Operaciones que se pueden aplicar a una lámina dentro de un lote */
+public enum TipoOperacionLamina {
+    ADQUIRIR,
+    AGREGAR_REPETIDA,
+    QUITAR_REPETIDA
+}
@@ -0,0 +1,26 @@
+package com.example.gestion_laminas_albunes_api.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import java.time.LocalDate;
+import java.util.List;
+
+/* Detalle de un álbum: láminas y estadísticas solo cuando se cargaron */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Data
+public class AlbumDetalleResponse {
+
+    private Long id;
+    private String nombre;
+    private String imagen;
+    private LocalDate fechaLanzamiento;
+    private String tipoLaminas;
+    private Integer totalLaminas;
+    private String descripcion;
+    private List<LaminaConEstadoResponse> laminas;
+
+    // Estadísticas
+    private Integer laminasAdquiridas;
+    private Integer laminasFaltantes;
+    private Double porcentajeCompletado;
+}
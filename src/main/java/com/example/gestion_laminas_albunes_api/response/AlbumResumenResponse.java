@@ -0,0 +1,34 @@
+package com.example.gestion_laminas_albunes_api.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/* Datos de un álbum para listados, sin su colección de láminas */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Data
+@NoArgsConstructor
+public class AlbumResumenResponse {
+
+    private Long id;
+    private String nombre;
+    private String imagen;
+    private LocalDate fechaLanzamiento;
+    private String tipoLaminas;
+    private Integer totalLaminas;
+    private String descripcion;
+    private BigDecimal relevancia; // Solo en búsquedas por texto (0 a 1)
+
+    public AlbumResumenResponse(Long id, String nombre, String imagen, LocalDate fechaLanzamiento,
+            String tipoLaminas, Integer totalLaminas, String descripcion) {
+        this.id = id;
+        this.nombre = nombre;
+        this.imagen = imagen;
+        this.fechaLanzamiento = fechaLanzamiento;
+        this.tipoLaminas = tipoLaminas;
+        this.totalLaminas = totalLaminas;
+        this.descripcion = descripcion;
+    }
+}
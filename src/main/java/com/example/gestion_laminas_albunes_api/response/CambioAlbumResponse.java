@@ -0,0 +1,19 @@
+package com.example.gestion_laminas_albunes_api.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CambioAlbumResponse {
+    
+    private TipoCambioAlbum tipo;
+    private Long albumId;
+    private Integer numero; // Solo en cambios de una lámina
+    private Boolean adquirida; // Estado de la lámina después del cambio
+    private Integer cantidadRepetidas;
+}
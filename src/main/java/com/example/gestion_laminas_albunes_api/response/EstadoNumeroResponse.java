@@ -0,0 +1,11 @@
+package com.example.gestion_laminas_albunes_api.response;
+
+import lombok.Data;
+
+@Data
+public class EstadoNumeroResponse {
+    
+    private Integer numero;
+    private boolean registrada; // La lámina existe en el álbum
+    private boolean adquirida;
+}
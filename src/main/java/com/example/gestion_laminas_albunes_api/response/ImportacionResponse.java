@@ -0,0 +1,11 @@
+package com.example.gestion_laminas_albunes_api.response;
+
+import lombok.Data;
+
+@Data
+public class ImportacionResponse {
+    private int status;
+    private String mensaje;
+    private int importadas; // Láminas creadas o actualizadas
+    private int omitidas; // Filas sin número válido
+}
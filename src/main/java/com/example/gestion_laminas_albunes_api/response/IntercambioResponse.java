@@ -0,0 +1,12 @@
+package com.example.gestion_laminas_albunes_api.response;
+
+import lombok.Data;
+
+@Data
+public class IntercambioResponse {
+    
+    private Long coleccionistaId; // El otro coleccionista del mismo álbum
+    private int intercambios; // Cambios uno a uno posibles
+    private int[] laminasQueDoy; // Mis repetidas que al otro le faltan
+    private int[] laminasQueRecibo; // Sus repetidas que a mí me faltan
+}
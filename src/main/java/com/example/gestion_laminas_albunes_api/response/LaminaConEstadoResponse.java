@@ -0,0 +1,20 @@
+package com.example.gestion_laminas_albunes_api.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/* Lámina del catálogo con su estado en la colección de quien consulta */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LaminaConEstadoResponse {
+
+    private Long id;
+    private Integer numero;
+    private String nombre;
+    private String imagen;
+    private Boolean adquirida;
+    private Integer cantidadRepetidas;
+    private Long version;
+}
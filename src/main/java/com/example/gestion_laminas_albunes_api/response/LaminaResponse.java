@@ -1,10 +1,9 @@
 package com.example.gestion_laminas_albunes_api.response;
-import com.example.gestion_laminas_albunes_api.model.Lamina;
 import lombok.Data;
 
 @Data
 public class LaminaResponse {
     private int status;
     private String mensaje;
-    private Lamina datos;
+    private LaminaConEstadoResponse datos;
 }
@@ -0,0 +1,23 @@
+package com.example.gestion_laminas_albunes_api.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.Data;
+
+/*
+ * Listado de láminas por columnas (?formato=columnas): un arreglo por campo, la
+ * posición i de cada uno corresponde a la misma lámina. Las columnas sin datos
+ * se omiten: nombre si todas tienen el nombre por defecto ("Lámina " + numero),
+ * imagen si ninguna la tiene y adquirida en las repetidas (siempre lo están).
+ * Dentro de nombre e imagen, null es el nombre por defecto o la falta de imagen.
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class LaminasColumnas {
+    private long[] id;
+    private int[] numero;
+    private boolean[] adquirida;
+    private int[] cantidadRepetidas;
+    private String[] nombre;
+    private String[] imagen;
+}
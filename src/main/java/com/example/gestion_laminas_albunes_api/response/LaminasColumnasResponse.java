@@ -0,0 +1,14 @@
+package com.example.gestion_laminas_albunes_api.response;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.Data;
+
+@Data
+public class LaminasColumnasResponse {
+    private int status;
+    private String mensaje;
+    private LaminasColumnas datos;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer siguienteCursor; // Solo en respuestas paginadas con más resultados
+}
@@ -1,6 +1,6 @@
 package com.example.gestion_laminas_albunes_api.response;
 import java.util.List;
-import com.example.gestion_laminas_albunes_api.model.Lamina;
+import com.fasterxml.jackson.annotation.JsonInclude;
 
 import lombok.Data;
 
@@ -8,5 +8,8 @@ import lombok.Data;
 public class LaminasResponse {
     private int status;
     private String mensaje;
-    private List<Lamina> datos;
+    private List<LaminaConEstadoResponse> datos;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer siguienteCursor; // Solo en respuestas paginadas con más resultados
 }
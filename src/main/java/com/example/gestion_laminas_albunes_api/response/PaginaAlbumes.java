@@ -0,0 +1,13 @@
+package com.example.gestion_laminas_albunes_api.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import java.util.List;
+
+/* Página de resultados de la búsqueda de álbumes */
+@Data
+@AllArgsConstructor
+public class PaginaAlbumes {
+    private List<AlbumResumenResponse> datos;
+    private String siguienteCursor; // Posición del último álbum entregado, null si no hay más páginas
+}
@@ -0,0 +1,13 @@
+package com.example.gestion_laminas_albunes_api.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import java.util.List;
+
+/* Página de resultados con el cursor para pedir la siguiente */
+@Data
+@AllArgsConstructor
+public class PaginaLaminas<T> {
+    private List<T> datos;
+    private Integer siguienteCursor; // Número de la última lámina entregada, null si no hay más páginas
+}
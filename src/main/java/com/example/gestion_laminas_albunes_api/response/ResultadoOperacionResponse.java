@@ -0,0 +1,14 @@
+package com.example.gestion_laminas_albunes_api.response;
+
+import com.example.gestion_laminas_albunes_api.request.TipoOperacionLamina;
+import lombok.Data;
+
+@Data
+public class ResultadoOperacionResponse {
+    
+    private Integer numero;
+    private TipoOperacionLamina operacion;
+    private boolean aplicada; // false si la lámina no existe en el álbum
+    private Boolean adquirida; // Estado de la lámina después de esta operación del lote
+    private Integer cantidadRepetidas;
+}
@@ -0,0 +1,11 @@
+package com.example.gestion_laminas_albunes_api.response;
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class ResultadosOperacionesResponse {
+    private int status;
+    private String mensaje;
+    private List<ResultadoOperacionResponse> datos;
+}
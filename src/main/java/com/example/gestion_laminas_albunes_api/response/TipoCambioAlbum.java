@@ -0,0 +1,12 @@
+package com.example.gestion_laminas_albunes_api.response;
+
+public enum TipoCambioAlbum {
+    LAMINA_CREADA,
+    LAMINA_ADQUIRIDA,
+    REPETIDA_AGREGADA,
+    REPETIDA_QUITADA,
+    LAMINA_MODIFICADA, // Actualización o eliminación de una lámina
+    ALBUM_ACTUALIZADO,
+    ALBUM_ELIMINADO,
+    RESINCRONIZAR // Hubo demasiados cambios pendientes: el cliente debe volver a consultar el álbum
+}
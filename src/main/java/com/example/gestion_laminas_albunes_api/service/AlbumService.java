@@ -1,43 +1,94 @@
 package com.example.gestion_laminas_albunes_api.service;
 
 import com.example.gestion_laminas_albunes_api.model.Album;
-import com.example.gestion_laminas_albunes_api.model.Lamina;
+import com.example.gestion_laminas_albunes_api.repository.AlbumBusqueda;
 import com.example.gestion_laminas_albunes_api.repository.AlbumRepository;
 import com.example.gestion_laminas_albunes_api.repository.LaminaRepository;
 import com.example.gestion_laminas_albunes_api.request.AlbumRequest;
+import com.example.gestion_laminas_albunes_api.response.AlbumDetalleResponse;
+import com.example.gestion_laminas_albunes_api.response.AlbumResumenResponse;
+import com.example.gestion_laminas_albunes_api.response.PaginaAlbumes;
+import com.example.gestion_laminas_albunes_api.response.TipoCambioAlbum;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 public class AlbumService {
 
+    private static final int TAMANO_BUSQUEDA_DEFECTO = 20;
+    private static final int TAMANO_BUSQUEDA_MAXIMO = 100;
+
     @Autowired
     private AlbumRepository albumRepository;
 
     @Autowired
     private LaminaRepository laminaRepository;
 
-    /* Obtener todos los álbumes */
-    public List<Album> obtenerTodos() {
-        return albumRepository.findAll();
+    @Autowired
+    private CompletitudService completitudService;
+
+    @Autowired
+    private CacheAlbumes cacheAlbumes;
+
+    @Autowired
+    private DifusorCambiosAlbum difusorCambios;
+
+    @Autowired
+    private RepetidasDiferidas repetidasDiferidas;
+
+    /* Obtener todos los álbumes (resumen, sin láminas) */
+    @Transactional(readOnly = true)
+    public List<AlbumResumenResponse> obtenerTodos() {
+        return albumRepository.findAllResumen();
+    }
+
+    /*
+     * Obtener los datos de un álbum por ID (null si no existe). Quedan en caché
+     * con la versión del álbum: solo se lee esa versión mientras no cambie
+     */
+    @Transactional(readOnly = true)
+    public DatosAlbum obtenerId(Long id) {
+        Long version = albumRepository.findVersion(id).orElse(null);
+        return version == null ? null : datosAlbum(id, version.toString());
+    }
+
+    /* Verificar si un álbum existe (solo se guardan en caché los que existen) */
+    @Cacheable(cacheNames = CacheAlbumes.ALBUMES_EXISTENTES, unless = "!#result")
+    @Transactional(readOnly = true)
+    public boolean existe(Long id) {
+        return albumRepository.existsById(id);
     }
 
-    /* Obtener un álbum por ID */
-    public Album obtenerId(Long id) {
-        return albumRepository.findById(id).orElse(null);
+    /* Obtener el detalle de un álbum con sus láminas y el estado de cada una en la colección del coleccionista */
+    @Transactional(readOnly = true)
+    public AlbumDetalleResponse obtenerDetalle(Long id, Long coleccionistaId) {
+        repetidasDiferidas.vaciar(id, coleccionistaId);
+        DatosAlbum album = obtenerId(id);
+        if (album == null) {
+            return null;
+        }
+        AlbumDetalleResponse response = convertirADetalle(album);
+        response.setLaminas(laminaRepository.findByAlbumIdConAlbum(id, coleccionistaId).stream()
+                .filter(lamina -> lamina.getId() != null)
+                .map(LaminaService::convertir)
+                .toList());
+        return response;
     }
 
     /* Crear un nuevo álbum */
     @Transactional
-    public Album crear(AlbumRequest request) {
+    public AlbumDetalleResponse crear(AlbumRequest request) {
         if(request.getNombre() == null) {
             return null;
         }
-        if(request.getTotalLaminas() == null) {
+        if(request.getTotalLaminas() == null || !totalValido(request.getTotalLaminas())) {
             return null;
         }
         
@@ -53,17 +104,20 @@ public class AlbumService {
         // Nota: La creación masiva de láminas se realiza mediante el endpoint
         // específico
         // POST /api/laminas/album/{albumId}/multiple
-        return albumRepository.save(albumGuardado);
+        return convertirADetalle(albumGuardado);
     }
 
-    /* Actualizar un álbum existente */
+    /* Actualizar un álbum existente. Lanza IllegalArgumentException si el total está fuera de rango */
     @Transactional
-    public Album actualizar(Long id, AlbumRequest request) {
+    public AlbumDetalleResponse actualizar(Long id, AlbumRequest request) {
         Album album = albumRepository.findById(id).orElse(null);
 
         if (album == null) {
             return null;
         }
+        if (request.getTotalLaminas() != null && !totalValido(request.getTotalLaminas())) {
+            throw new IllegalArgumentException("El total de láminas debe estar entre 1 y " + Album.MAXIMO_LAMINAS);
+        }
 
         album.setNombre(request.getNombre());
         album.setImagen(request.getImagen());
@@ -72,46 +126,157 @@ public class AlbumService {
         album.setTotalLaminas(request.getTotalLaminas());
         album.setDescripcion(request.getDescripcion());
 
-        return albumRepository.save(album);
+        albumRepository.incrementarVersion(id);
+        cacheAlbumes.albumModificado(id);
+        difusorCambios.albumModificado(TipoCambioAlbum.ALBUM_ACTUALIZADO, id);
+        return convertirADetalle(albumRepository.save(album));
     }
 
-    /* Eliminar un álbum */
+    /*
+     * Eliminar un álbum con sus láminas y colecciones en una sola sentencia
+     * (cascada en la base de datos). Devuelve false si no existe
+     */
     @Transactional
-    public void eliminar(Long id) {
-        Album album = albumRepository.findById(id).orElse(null);
-        albumRepository.delete(album);
+    public boolean eliminar(Long id) {
+        if (albumRepository.eliminarPorId(id) == 0) {
+            return false;
+        }
+        cacheAlbumes.albumEliminado(id);
+        difusorCambios.albumModificado(TipoCambioAlbum.ALBUM_ELIMINADO, id);
+        return true;
     }
 
-    /* Buscar álbumes por nombre */
-    public List<Album> buscarPorNombre(String nombre) {
-        return albumRepository.findByNombreContainingIgnoreCase(nombre).stream()
-                .collect(Collectors.toList());
+    /*
+     * Versión del álbum y de la colección del coleccionista, para las ETag de
+     * sus consultas (null si el álbum no existe)
+     */
+    @Transactional(readOnly = true)
+    public String obtenerVersion(Long id, Long coleccionistaId) {
+        // Con escrituras diferidas pendientes, la versión todavía no refleja los últimos toques
+        repetidasDiferidas.vaciar(id, coleccionistaId);
+        return albumRepository.findVersionColeccion(id, coleccionistaId).orElse(null);
     }
 
-    /* Album con estadísticas actualizadas */
-    public Album estadisticasAlbum(Album album) {
-        Album response = new Album();
-        response.setId(album.getId());
-        response.setNombre(album.getNombre());
-        response.setImagen(album.getImagen());
-        response.setFechaLanzamiento(album.getFechaLanzamiento());
-        response.setTipoLaminas(album.getTipoLaminas());
-        response.setTotalLaminas(album.getTotalLaminas());
-        response.setDescripcion(album.getDescripcion());
+    /*
+     * Buscar álbumes por texto (nombre y descripción) y filtros, paginado. Con
+     * texto se ordena por relevancia y el cursor es "relevancia_id"; sin texto se
+     * ordena por ID y el cursor es el ID. Lanza IllegalArgumentException si el
+     * cursor no es válido.
+     */
+    @Transactional(readOnly = true)
+    public PaginaAlbumes buscar(String texto, String tipo, LocalDate desde, LocalDate hasta, String cursor,
+            Integer tamano) {
+        int limite = tamano == null ? TAMANO_BUSQUEDA_DEFECTO : Math.clamp(tamano, 1, TAMANO_BUSQUEDA_MAXIMO);
+        boolean conTexto = texto != null && !texto.isBlank();
+
+        BigDecimal cursorRelevancia = null;
+        Long cursorId = null;
+        if (cursor != null) {
+            try {
+                if (conTexto) {
+                    int separador = cursor.indexOf('_');
+                    cursorRelevancia = new BigDecimal(cursor.substring(0, separador));
+                    cursorId = Long.valueOf(cursor.substring(separador + 1));
+                } else {
+                    cursorId = Long.valueOf(cursor);
+                }
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Cursor inválido: " + cursor);
+            }
+        }
+
+        // Se pide una fila extra para saber si hay otra página
+        List<AlbumBusqueda> filas = conTexto
+                ? albumRepository.buscarPorTexto(texto.trim(), "%" + escaparLike(texto.trim()) + "%", tipo, desde,
+                        hasta, cursorRelevancia, cursorId, limite + 1)
+                : albumRepository.buscarConFiltros(tipo, desde, hasta, cursorId, limite + 1);
 
-        // Calcular estadísticas
-        List<Lamina> laminas = laminaRepository.findByAlbumId(album.getId());
-        long adquiridas = laminas.stream().filter(Lamina::getAdquirida).count();
+        String siguienteCursor = null;
+        if (filas.size() > limite) {
+            filas = filas.subList(0, limite);
+            AlbumBusqueda ultima = filas.get(limite - 1);
+            siguienteCursor = conTexto
+                    ? ultima.getRelevancia().toPlainString() + "_" + ultima.getId()
+                    : String.valueOf(ultima.getId());
+        }
+
+        List<AlbumResumenResponse> albumes = new ArrayList<>(filas.size());
+        for (AlbumBusqueda fila : filas) {
+            AlbumResumenResponse album = new AlbumResumenResponse(fila.getId(), fila.getNombre(), fila.getImagen(),
+                    fila.getFechaLanzamiento(), fila.getTipoLaminas(), fila.getTotalLaminas(), fila.getDescripcion());
+            album.setRelevancia(fila.getRelevancia());
+            albumes.add(album);
+        }
+        return new PaginaAlbumes(albumes, siguienteCursor);
+    }
+
+    private static boolean totalValido(int totalLaminas) {
+        return totalLaminas >= 1 && totalLaminas <= Album.MAXIMO_LAMINAS;
+    }
+
+    /* El texto buscado se toma literal: % y _ no son comodines */
+    private static String escaparLike(String texto) {
+        return texto.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /*
+     * Album con las estadísticas de la colección del coleccionista (null si no
+     * existe). Queda en caché con la versión del álbum y la colección
+     */
+    @Transactional(readOnly = true)
+    public AlbumDetalleResponse estadisticasAlbum(Long id, Long coleccionistaId) {
+        String version = albumRepository.findVersionColeccion(id, coleccionistaId).orElse(null);
+        if (version == null) {
+            return null;
+        }
+        return cacheAlbumes.obtenerVigente(CacheAlbumes.ESTADISTICAS, new ClaveColeccion(id, coleccionistaId),
+                version, AlbumDetalleResponse.class, () -> calcularEstadisticas(id, coleccionistaId, version));
+    }
+
+    /* La versión "album-coleccion" ya trae la del álbum: los datos del álbum salen del caché sin otra consulta */
+    private AlbumDetalleResponse calcularEstadisticas(Long id, Long coleccionistaId, String version) {
+        DatosAlbum album = datosAlbum(id, version.substring(0, version.indexOf('-')));
+        if (album == null) {
+            return null;
+        }
+        AlbumDetalleResponse response = convertirADetalle(album);
+
+        // Calcular estadísticas desde el mapa de bits de completitud, sin cargar las láminas
+        CompletitudAlbum completitud = completitudService.obtener(id, coleccionistaId);
+        long adquiridas = completitud.adquiridas();
 
         response.setLaminasAdquiridas((int) adquiridas);
-        response.setLaminasFaltantes(album.getTotalLaminas() - (int) adquiridas);
+        response.setLaminasFaltantes(album.totalLaminas() - (int) adquiridas);
 
-        if (laminas.size() > 0) {
-            double porcentaje = (adquiridas * 100.0) / album.getTotalLaminas();
+        if (completitud.registradas() > 0) {
+            double porcentaje = (adquiridas * 100.0) / album.totalLaminas();
             response.setPorcentajeCompletado(Math.round(porcentaje * 100.0) / 100.0);
         } else {
             response.setPorcentajeCompletado(0.0);
         }
         return response;
     }
+
+    /* Datos del álbum leídos con la versión dada, del caché si siguen vigentes */
+    private DatosAlbum datosAlbum(Long id, String version) {
+        return cacheAlbumes.obtenerVigente(CacheAlbumes.ALBUMES, id, version, DatosAlbum.class,
+                () -> albumRepository.findById(id).map(DatosAlbum::new).orElse(null));
+    }
+
+    /* Convertir entidad Album a AlbumDetalleResponse (sin láminas ni estadísticas) */
+    private AlbumDetalleResponse convertirADetalle(Album album) {
+        return convertirADetalle(new DatosAlbum(album));
+    }
+
+    private AlbumDetalleResponse convertirADetalle(DatosAlbum album) {
+        AlbumDetalleResponse response = new AlbumDetalleResponse();
+        response.setId(album.id());
+        response.setNombre(album.nombre());
+        response.setImagen(album.imagen());
+        response.setFechaLanzamiento(album.fechaLanzamiento());
+        response.setTipoLaminas(album.tipoLaminas());
+        response.setTotalLaminas(album.totalLaminas());
+        response.setDescripcion(album.descripcion());
+        return response;
+    }
 }
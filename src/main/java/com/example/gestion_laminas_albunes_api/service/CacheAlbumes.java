@@ -0,0 +1,96 @@
+package com.example.gestion_laminas_albunes_api.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/*
+ * Nombres de los cachés de álbumes e invalidación de sus entradas.
+ * Dentro de una transacción la invalidación se aplica después del commit,
+ * para que una lectura concurrente no vuelva a guardar datos sin confirmar.
+ * Los datos del álbum guardan además la versión del álbum con la que se
+ * leyeron, y las entradas por colección la del álbum y la colección: una
+ * lectura que empezó antes del commit y guarda su valor después de la
+ * invalidación deja una entrada con la versión anterior, que la siguiente
+ * lectura descarta. Por eso los cambios del álbum o de su catálogo, que
+ * incrementan la versión del álbum, no recorren el caché buscando las entradas
+ * de sus colecciones: quedan vencidas hasta que se reemplazan o expiran.
+ */
+@Component
+public class CacheAlbumes {
+
+    public static final String ALBUMES = "albumes"; // Datos del álbum sin láminas ni estadísticas, por ID
+    public static final String ESTADISTICAS = "estadisticas"; // Álbum con estadísticas, por ClaveColeccion
+    public static final String ALBUMES_EXISTENTES = "albumesExistentes"; // Álbumes que existen, por ID
+    public static final String COMPLETITUD = "completitud"; // Mapa de bits de láminas adquiridas, por ClaveColeccion
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    /* Valor con la versión ("album" o "album-coleccion") que tenía al empezar a calcularlo */
+    private record Versionado(String version, Object valor) {
+    }
+
+    /* Peso aproximado en bytes de una entrada del caché de completitud */
+    static int peso(Object entrada) {
+        Object valor = entrada instanceof Versionado versionado ? versionado.valor() : entrada;
+        return valor instanceof CompletitudAlbum completitud ? completitud.bytes() : 64;
+    }
+
+    /*
+     * Valor en caché de un álbum o colección si se calculó con la versión dada; si no,
+     * se calcula y se guarda con esa versión. La versión se lee antes que los
+     * datos del cálculo (null si el álbum no existe: no se guarda nada).
+     */
+    public <T> T obtenerVigente(String nombre, Object clave, String version, Class<T> tipo,
+            Supplier<T> calculo) {
+        T valor = vigente(nombre, clave, version, tipo);
+        if (valor == null) {
+            valor = calculo.get();
+            guardar(nombre, clave, version, valor);
+        }
+        return valor;
+    }
+
+    /* Valor en caché de un álbum o colección, solo si se calculó con la versión dada */
+    public <T> T vigente(String nombre, Object clave, String version, Class<T> tipo) {
+        Cache cache = cacheManager.getCache(nombre);
+        Versionado guardado = cache != null && version != null ? cache.get(clave, Versionado.class) : null;
+        return guardado != null && guardado.version().equals(version) ? tipo.cast(guardado.valor()) : null;
+    }
+
+    public void guardar(String nombre, Object clave, String version, Object valor) {
+        Cache cache = cacheManager.getCache(nombre);
+        if (cache != null && version != null && valor != null) {
+            cache.put(clave, new Versionado(version, valor));
+        }
+    }
+
+    /* Cambió el estado de varias láminas en la colección de un coleccionista */
+    public void coleccionModificada(Long albumId, Long coleccionistaId) {
+        ClaveColeccion clave = new ClaveColeccion(albumId, coleccionistaId);
+        Transacciones.despuesDelCommit(() -> evictar(clave, ESTADISTICAS, COMPLETITUD));
+    }
+
+    /* Los datos del álbum cambiaron */
+    public void albumModificado(Long albumId) {
+        Transacciones.despuesDelCommit(() -> evictar(albumId, ALBUMES));
+    }
+
+    /* El álbum fue eliminado */
+    public void albumEliminado(Long albumId) {
+        Transacciones.despuesDelCommit(() -> evictar(albumId, ALBUMES, ALBUMES_EXISTENTES));
+    }
+
+    private void evictar(Object clave, String... nombres) {
+        for (String nombre : nombres) {
+            Cache cache = cacheManager.getCache(nombre);
+            if (cache != null) {
+                cache.evict(clave);
+            }
+        }
+    }
+}
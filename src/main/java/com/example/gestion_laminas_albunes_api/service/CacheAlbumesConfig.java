@@ -0,0 +1,36 @@
+package com.example.gestion_laminas_albunes_api.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.boot.cache.autoconfigure.CacheManagerCustomizer;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/*
+ * El caché de completitud guarda mapas de bits cuyo tamaño depende del número
+ * de lámina más alto, así que se acota por peso (bytes aproximados) y no por
+ * cantidad de entradas como el resto de los cachés de álbumes.
+ */
+@Configuration
+public class CacheAlbumesConfig {
+
+    @Bean
+    public CacheManagerCustomizer<CaffeineCacheManager> cacheCompletitudPorPeso(Environment environment) {
+        return cacheManager -> {
+            DataSize pesoMaximo = environment.getProperty("app.cache.completitud.peso-maximo", DataSize.class,
+                    DataSize.ofMegabytes(64));
+            Duration expiracion = environment.getProperty("app.cache.completitud.expiracion", Duration.class,
+                    Duration.ofMinutes(10));
+            cacheManager.registerCustomCache(CacheAlbumes.COMPLETITUD, Caffeine.newBuilder()
+                    .maximumWeight(pesoMaximo.toBytes())
+                    .weigher((Object clave, Object entrada) -> CacheAlbumes.peso(entrada))
+                    .expireAfterWrite(expiracion)
+                    .recordStats()
+                    .build());
+        };
+    }
+}
@@ -0,0 +1,5 @@
+package com.example.gestion_laminas_albunes_api.service;
+
+/* Clave de los cachés por colección: un álbum visto por un coleccionista */
+public record ClaveColeccion(Long albumId, Long coleccionistaId) {
+}
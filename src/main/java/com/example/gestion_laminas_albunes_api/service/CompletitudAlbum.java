@@ -0,0 +1,70 @@
+package com.example.gestion_laminas_albunes_api.service;
+
+import java.util.BitSet;
+
+/*
+ * Estado de completitud de un álbum como mapas de bits indexados por número:
+ * láminas registradas, adquiridas y con repetidas. Es inmutable, así se
+ * puede compartir desde el caché; cada cambio de la colección arma uno nuevo.
+ */
+public final class CompletitudAlbum {
+
+    private final BitSet registradas;
+    private final BitSet adquiridas;
+    private final BitSet repetidas;
+
+    CompletitudAlbum(BitSet registradas, BitSet adquiridas, BitSet repetidas) {
+        this.registradas = registradas;
+        this.adquiridas = adquiridas;
+        this.repetidas = repetidas;
+    }
+
+    /* Memoria aproximada que ocupan los mapas de bits */
+    int bytes() {
+        return 64 + (registradas.size() + adquiridas.size() + repetidas.size()) / Byte.SIZE;
+    }
+
+    /* Cantidad de láminas registradas en el álbum */
+    public int registradas() {
+        return registradas.cardinality();
+    }
+
+    /* Cantidad de láminas adquiridas */
+    public int adquiridas() {
+        return adquiridas.cardinality();
+    }
+
+    public boolean estaRegistrada(int numero) {
+        return numero >= 0 && registradas.get(numero);
+    }
+
+    public boolean estaAdquirida(int numero) {
+        return numero >= 0 && adquiridas.get(numero);
+    }
+
+    /* Números registrados y no adquiridos, en orden */
+    public int[] faltantes() {
+        return faltantesBits().stream().toArray();
+    }
+
+    BitSet faltantesBits() {
+        BitSet faltantes = (BitSet) registradas.clone();
+        faltantes.andNot(adquiridas);
+        return faltantes;
+    }
+
+    /* Repetidas de este álbum que le faltan al otro */
+    BitSet repetidasQueLeFaltanA(CompletitudAlbum otro) {
+        BitSet utiles = (BitSet) repetidas.clone();
+        utiles.and(otro.registradas);
+        utiles.andNot(otro.adquiridas);
+        return utiles;
+    }
+
+    /* Repetidas de este álbum que están en el conjunto dado */
+    BitSet repetidasEn(BitSet numeros) {
+        BitSet utiles = (BitSet) repetidas.clone();
+        utiles.and(numeros);
+        return utiles;
+    }
+}
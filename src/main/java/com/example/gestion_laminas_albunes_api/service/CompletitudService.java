@@ -0,0 +1,121 @@
+package com.example.gestion_laminas_albunes_api.service;
+
+import com.example.gestion_laminas_albunes_api.model.Album;
+import com.example.gestion_laminas_albunes_api.repository.AlbumRepository;
+import com.example.gestion_laminas_albunes_api.repository.EstadoLamina;
+import com.example.gestion_laminas_albunes_api.repository.EstadoLaminaColeccionista;
+import com.example.gestion_laminas_albunes_api.repository.LaminaRepository;
+import com.example.gestion_laminas_albunes_api.repository.VersionColeccion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class CompletitudService {
+
+    @Autowired
+    private LaminaRepository laminaRepository;
+
+    @Autowired
+    private AlbumRepository albumRepository;
+
+    @Autowired
+    private CacheAlbumes cacheAlbumes;
+
+    /*
+     * Mapa de bits de completitud de un álbum en la colección de un coleccionista.
+     * Se arma con una sola consulta de (numero, adquirida, repetidas), sin cargar
+     * entidades, y queda en caché con la versión de la colección; el álbum debe existir.
+     */
+    @Transactional(readOnly = true)
+    public CompletitudAlbum obtener(Long albumId, Long coleccionistaId) {
+        String version = albumRepository.findVersionColeccion(albumId, coleccionistaId).orElse(null);
+        return cacheAlbumes.obtenerVigente(CacheAlbumes.COMPLETITUD, new ClaveColeccion(albumId, coleccionistaId),
+                version, CompletitudAlbum.class, () -> {
+                    // Una fila por lámina del catálogo: también dan las registradas
+                    List<EstadoLamina> estados = laminaRepository.findEstadosByAlbumId(albumId, coleccionistaId);
+                    return construir(registradas(estados.stream().map(EstadoLamina::getNumero).toList()), estados);
+                });
+    }
+
+    /*
+     * Mapas de bits de varias colecciones del mismo álbum: las que no están en
+     * caché se cargan juntas (el catálogo una vez y el estado de todas en otra
+     * consulta) y se guardan en el caché
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, CompletitudAlbum> obtenerVarios(Long albumId, Collection<Long> coleccionistas) {
+        Map<Long, String> versiones = new HashMap<>();
+        for (VersionColeccion version : albumRepository.findVersionesColecciones(albumId,
+                coleccionistas.toArray(new Long[0]))) {
+            versiones.put(version.getColeccionistaId(), version.getVersion());
+        }
+        Map<Long, CompletitudAlbum> resultado = new HashMap<>();
+        List<Long> pendientes = new ArrayList<>();
+        for (Long coleccionistaId : coleccionistas) {
+            CompletitudAlbum completitud = cacheAlbumes.vigente(CacheAlbumes.COMPLETITUD,
+                    new ClaveColeccion(albumId, coleccionistaId), versiones.get(coleccionistaId),
+                    CompletitudAlbum.class);
+            if (completitud != null) {
+                resultado.put(coleccionistaId, completitud);
+            } else {
+                pendientes.add(coleccionistaId);
+            }
+        }
+        if (pendientes.isEmpty()) {
+            return resultado;
+        }
+
+        BitSet registradas = registradas(laminaRepository.findNumerosByAlbumId(albumId));
+        Map<Long, List<EstadoLamina>> estadosPorColeccionista = new HashMap<>();
+        for (Long coleccionistaId : pendientes) {
+            estadosPorColeccionista.put(coleccionistaId, new ArrayList<>());
+        }
+        for (EstadoLaminaColeccionista estado : laminaRepository.findEstadosByAlbumIdAndColeccionistas(albumId,
+                pendientes.toArray(new Long[0]))) {
+            estadosPorColeccionista.get(estado.getColeccionistaId()).add(estado);
+        }
+        estadosPorColeccionista.forEach((coleccionistaId, estados) -> {
+            CompletitudAlbum completitud = construir(registradas, estados);
+            cacheAlbumes.guardar(CacheAlbumes.COMPLETITUD, new ClaveColeccion(albumId, coleccionistaId),
+                    versiones.get(coleccionistaId), completitud);
+            resultado.put(coleccionistaId, completitud);
+        });
+        return resultado;
+    }
+
+    private BitSet registradas(List<Integer> numeros) {
+        BitSet registradas = new BitSet();
+        for (Integer numero : numeros) {
+            if (numero != null && numero >= 0 && numero <= Album.MAXIMO_LAMINAS) {
+                registradas.set(numero);
+            }
+        }
+        return registradas;
+    }
+
+    private CompletitudAlbum construir(BitSet registradas, List<? extends EstadoLamina> estados) {
+        BitSet adquiridas = new BitSet();
+        BitSet repetidas = new BitSet();
+        for (EstadoLamina estado : estados) {
+            Integer numero = estado.getNumero();
+            if (numero == null || numero < 0 || numero > Album.MAXIMO_LAMINAS) {
+                continue;
+            }
+            if (Boolean.TRUE.equals(estado.getAdquirida())) {
+                adquiridas.set(numero);
+            }
+            if (estado.getCantidadRepetidas() != null && estado.getCantidadRepetidas() > 0) {
+                repetidas.set(numero);
+            }
+        }
+        return new CompletitudAlbum(registradas, adquiridas, repetidas);
+    }
+}
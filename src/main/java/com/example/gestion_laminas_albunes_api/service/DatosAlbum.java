@@ -0,0 +1,15 @@
+package com.example.gestion_laminas_albunes_api.service;
+
+import com.example.gestion_laminas_albunes_api.model.Album;
+
+import java.time.LocalDate;
+
+/* Datos de un álbum sin sus láminas ni estadísticas, como se guardan en caché */
+public record DatosAlbum(Long id, String nombre, String imagen, LocalDate fechaLanzamiento, String tipoLaminas,
+        Integer totalLaminas, String descripcion) {
+
+    public DatosAlbum(Album album) {
+        this(album.getId(), album.getNombre(), album.getImagen(), album.getFechaLanzamiento(),
+                album.getTipoLaminas(), album.getTotalLaminas(), album.getDescripcion());
+    }
+}
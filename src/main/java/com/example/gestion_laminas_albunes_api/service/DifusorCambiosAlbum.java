@@ -0,0 +1,277 @@
+package com.example.gestion_laminas_albunes_api.service;
+
+import com.example.gestion_laminas_albunes_api.response.CambioAlbumResponse;
+import com.example.gestion_laminas_albunes_api.response.LaminaConEstadoResponse;
+import com.example.gestion_laminas_albunes_api.response.TipoCambioAlbum;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Difunde los cambios de cada álbum a sus suscriptores SSE, después del commit.
+ * Los cambios del catálogo llegan a todos los suscriptores del álbum; los del
+ * estado de una colección, solo a los suscriptores de ese coleccionista.
+ * Cada suscriptor tiene su propio buffer acotado: los cambios de una misma lámina
+ * se combinan (queda el último estado) y si el buffer se llena se descarta y se
+ * envía un único RESINCRONIZAR. Así un cliente lento nunca frena a quien modifica
+ * el álbum ni acumula memoria sin límite.
+ */
+@Component
+public class DifusorCambiosAlbum {
+
+    static final int MAXIMO_PENDIENTES = 256;
+
+    @Value("${app.eventos.timeout:30m}")
+    private Duration timeout;
+
+    @Value("${app.eventos.latido:30s}")
+    private Duration latido;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    private final Map<Long, Set<Suscriptor>> suscriptores = new ConcurrentHashMap<>();
+
+    // Cada suscriptor envía desde su propio hilo virtual, así un socket lento solo bloquea su envío
+    private final ExecutorService envios = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Latidos periódicos: mantienen viva la conexión y detectan clientes desconectados
+    private final ScheduledExecutorService latidos = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().daemon().name("latidos-sse").factory());
+
+    private Counter resincronizaciones;
+
+    @PostConstruct
+    void iniciar() {
+        latidos.scheduleAtFixedRate(
+                () -> suscriptores.values().forEach(delAlbum -> delAlbum.forEach(Suscriptor::latir)),
+                latido.toMillis(), latido.toMillis(), TimeUnit.MILLISECONDS);
+        Gauge.builder("album.events.subscribers", suscriptores,
+                        s -> s.values().stream().mapToInt(Set::size).sum())
+                .description("Suscriptores conectados al stream de cambios de álbumes")
+                .register(registry);
+        resincronizaciones = Counter.builder("album.events.resyncs")
+                .description("Buffers de suscriptores desbordados y reemplazados por RESINCRONIZAR")
+                .register(registry);
+    }
+
+    @PreDestroy
+    void detener() {
+        latidos.shutdownNow();
+        envios.shutdownNow();
+    }
+
+    /* Abrir un stream de cambios de un álbum en la colección de un coleccionista */
+    public SseEmitter suscribir(Long albumId, Long coleccionistaId) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Suscriptor suscriptor = new Suscriptor(albumId, coleccionistaId, emitter);
+        suscriptores.computeIfAbsent(albumId, id -> ConcurrentHashMap.newKeySet()).add(suscriptor);
+        emitter.onCompletion(suscriptor::cancelar);
+        emitter.onTimeout(suscriptor::cancelar);
+        emitter.onError(error -> suscriptor.cancelar());
+        return emitter;
+    }
+
+    /* Cambio de una lámina, con su estado final (coleccionistaId null: cambio del catálogo, para todos) */
+    public void laminaModificada(TipoCambioAlbum tipo, Long albumId, Long coleccionistaId,
+            LaminaConEstadoResponse lamina) {
+        publicar(albumId, coleccionistaId, List.of(cambio(tipo, albumId, lamina)));
+    }
+
+    /* Varias láminas del catálogo creadas o modificadas de una vez */
+    public void laminasModificadas(TipoCambioAlbum tipo, Long albumId, List<LaminaConEstadoResponse> laminas) {
+        if (!tieneSuscriptores(albumId) || laminas.isEmpty()) {
+            return;
+        }
+        List<CambioAlbumResponse> cambios = new ArrayList<>(laminas.size());
+        for (LaminaConEstadoResponse lamina : laminas) {
+            cambios.add(cambio(tipo, albumId, lamina));
+        }
+        publicar(albumId, null, cambios);
+    }
+
+    /* Cambio del álbum (actualizado, eliminado o que obliga a resincronizar), para todos */
+    public void albumModificado(TipoCambioAlbum tipo, Long albumId) {
+        publicar(albumId, null, List.of(new CambioAlbumResponse(tipo, albumId, null, null, null)));
+    }
+
+    /* Cambios ya armados (por ejemplo, el resultado de un lote); coleccionistaId null los envía a todos */
+    public void publicar(Long albumId, Long coleccionistaId, List<CambioAlbumResponse> cambios) {
+        if (!tieneSuscriptores(albumId) || cambios.isEmpty()) {
+            return;
+        }
+        Transacciones.despuesDelCommit(() -> {
+            Set<Suscriptor> delAlbum = suscriptores.get(albumId);
+            if (delAlbum != null) {
+                delAlbum.forEach(suscriptor -> {
+                    if (coleccionistaId == null || coleccionistaId.equals(suscriptor.coleccionistaId)) {
+                        suscriptor.encolar(cambios);
+                    }
+                });
+            }
+        });
+    }
+
+    public boolean tieneSuscriptores(Long albumId) {
+        Set<Suscriptor> delAlbum = suscriptores.get(albumId);
+        return delAlbum != null && !delAlbum.isEmpty();
+    }
+
+    private static CambioAlbumResponse cambio(TipoCambioAlbum tipo, Long albumId, LaminaConEstadoResponse lamina) {
+        return new CambioAlbumResponse(tipo, albumId, lamina.getNumero(), lamina.getAdquirida(),
+                lamina.getCantidadRepetidas());
+    }
+
+    private final class Suscriptor {
+
+        private final Long albumId;
+        private final Long coleccionistaId;
+        private final SseEmitter emitter;
+        private final ReentrantLock lock = new ReentrantLock();
+
+        // Cambios pendientes por lámina (o por tipo, si son del álbum), en orden del último cambio
+        private final LinkedHashMap<String, CambioAlbumResponse> pendientes = new LinkedHashMap<>();
+        private boolean desbordado;
+        private CambioAlbumResponse eliminado;
+        private boolean latidoPendiente;
+        private boolean enviando;
+        private volatile boolean cancelado;
+
+        Suscriptor(Long albumId, Long coleccionistaId, SseEmitter emitter) {
+            this.albumId = albumId;
+            this.coleccionistaId = coleccionistaId;
+            this.emitter = emitter;
+        }
+
+        void encolar(List<CambioAlbumResponse> cambios) {
+            boolean iniciarEnvio;
+            lock.lock();
+            try {
+                if (cancelado) {
+                    return;
+                }
+                for (CambioAlbumResponse cambio : cambios) {
+                    if (cambio.getTipo() == TipoCambioAlbum.ALBUM_ELIMINADO) {
+                        eliminado = cambio;
+                    } else if (!desbordado) {
+                        String clave = cambio.getNumero() != null
+                                ? "L" + cambio.getNumero()
+                                : cambio.getTipo().name();
+                        pendientes.remove(clave);
+                        pendientes.put(clave, cambio);
+                        if (pendientes.size() > MAXIMO_PENDIENTES) {
+                            pendientes.clear();
+                            desbordado = true;
+                            resincronizaciones.increment();
+                        }
+                    }
+                }
+                iniciarEnvio = !enviando;
+                enviando = true;
+            } finally {
+                lock.unlock();
+            }
+            if (iniciarEnvio) {
+                envios.execute(this::enviarPendientes);
+            }
+        }
+
+        private void enviarPendientes() {
+            while (true) {
+                List<CambioAlbumResponse> lote;
+                boolean resincronizar;
+                boolean latido;
+                CambioAlbumResponse ultimo;
+                lock.lock();
+                try {
+                    if (cancelado || (pendientes.isEmpty() && !desbordado && eliminado == null && !latidoPendiente)) {
+                        enviando = false;
+                        return;
+                    }
+                    latido = latidoPendiente;
+                    latidoPendiente = false;
+                    lote = new ArrayList<>(pendientes.values());
+                    pendientes.clear();
+                    resincronizar = desbordado;
+                    desbordado = false;
+                    ultimo = eliminado;
+                    eliminado = null;
+                } finally {
+                    lock.unlock();
+                }
+
+                try {
+                    if (latido) {
+                        emitter.send(SseEmitter.event().comment("latido"));
+                    }
+                    if (resincronizar) {
+                        enviar(new CambioAlbumResponse(TipoCambioAlbum.RESINCRONIZAR, albumId, null, null, null));
+                    }
+                    for (CambioAlbumResponse cambio : lote) {
+                        enviar(cambio);
+                    }
+                    if (ultimo != null) {
+                        enviar(ultimo);
+                        emitter.complete();
+                        cancelar();
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    // El cliente se desconectó o el emitter ya terminó
+                    cancelar();
+                }
+            }
+        }
+
+        private void enviar(CambioAlbumResponse cambio) throws IOException {
+            emitter.send(SseEmitter.event().name(cambio.getTipo().name()).data(cambio, MediaType.APPLICATION_JSON));
+        }
+
+        /*
+         * Comentario SSE vacío, enviado por el mismo hilo que los cambios; si falla,
+         * el cliente ya no está. Si hay un envío en curso (o bloqueado en un socket
+         * lento) se omite: ese envío ya mantiene viva la conexión o la cerrará.
+         */
+        void latir() {
+            lock.lock();
+            try {
+                if (cancelado || enviando) {
+                    return;
+                }
+                latidoPendiente = true;
+                enviando = true;
+            } finally {
+                lock.unlock();
+            }
+            envios.execute(this::enviarPendientes);
+        }
+
+        void cancelar() {
+            cancelado = true;
+            suscriptores.computeIfPresent(albumId, (id, delAlbum) -> {
+                delAlbum.remove(this);
+                return delAlbum.isEmpty() ? null : delAlbum;
+            });
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.gestion_laminas_albunes_api.service;
+
+/* Subconjunto de láminas de un álbum que se quiere consultar */
+public enum FiltroLaminas {
+    TODAS,
+    FALTANTES,
+    REPETIDAS
+}
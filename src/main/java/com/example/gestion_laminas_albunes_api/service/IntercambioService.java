@@ -0,0 +1,106 @@
+package com.example.gestion_laminas_albunes_api.service;
+
+import com.example.gestion_laminas_albunes_api.repository.LaminaRepository;
+import com.example.gestion_laminas_albunes_api.response.IntercambioResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class IntercambioService {
+
+    public static final int LIMITE_DEFECTO = 20;
+    public static final int LIMITE_MAXIMO = 100;
+
+    // Coleccionistas que se evalúan: los que tienen más repetidas entre mis faltantes
+    private static final int CANDIDATOS_MAXIMOS = 500;
+
+    @Autowired
+    private LaminaRepository laminaRepository;
+
+    @Autowired
+    private AlbumService albumService;
+
+    @Autowired
+    private CompletitudService completitudService;
+
+    @Autowired
+    private RepetidasDiferidas repetidasDiferidas;
+
+    /*
+     * Buscar otros coleccionistas del mismo álbum con los que se puede
+     * intercambiar en ambos sentidos. Los candidatos salen del índice de
+     * repetidas (quienes tienen repetidas que me faltan); luego se cruzan los
+     * mapas de bits de repetidas y faltantes de cada colección y se ordenan por
+     * cantidad de cambios uno a uno posibles (null si el álbum no existe).
+     */
+    @Transactional(readOnly = true)
+    public List<IntercambioResponse> buscarIntercambios(Long albumId, Long coleccionistaId, Integer limite) {
+        // Las repetidas de todas las colecciones del álbum participan en la búsqueda (si se escribieron, se leen
+        // desde la primaria)
+        repetidasDiferidas.vaciarAlbum(albumId);
+        if (!albumService.existe(albumId)) {
+            return null;
+        }
+        int tamano = limite == null ? LIMITE_DEFECTO : Math.clamp(limite, 1, LIMITE_MAXIMO);
+
+        CompletitudAlbum propio = completitudService.obtener(albumId, coleccionistaId);
+        BitSet misFaltantes = propio.faltantesBits();
+        if (misFaltantes.isEmpty()) {
+            return List.of();
+        }
+        List<Long> candidatos = laminaRepository.findColeccionistasConRepetidas(albumId, coleccionistaId,
+                misFaltantes.stream().boxed().toArray(Integer[]::new), CANDIDATOS_MAXIMOS);
+        if (candidatos.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, CompletitudAlbum> otros = completitudService.obtenerVarios(albumId, candidatos);
+
+        // Primero solo se cuentan los cambios; los números se arman para los elegidos
+        List<Coincidencia> coincidencias = new ArrayList<>();
+        otros.forEach((otroId, otro) -> {
+            BitSet doy = propio.repetidasQueLeFaltanA(otro);
+            if (doy.isEmpty()) {
+                return;
+            }
+            BitSet recibo = otro.repetidasEn(misFaltantes);
+            if (!recibo.isEmpty()) {
+                coincidencias.add(new Coincidencia(otroId, doy, recibo));
+            }
+        });
+
+        return coincidencias.stream()
+                .sorted(Comparator.comparingInt(Coincidencia::intercambios).reversed()
+                        .thenComparing(Comparator.comparingInt(Coincidencia::total).reversed())
+                        .thenComparing(Coincidencia::coleccionistaId))
+                .limit(tamano)
+                .map(this::convertirAResponse)
+                .toList();
+    }
+
+    private IntercambioResponse convertirAResponse(Coincidencia coincidencia) {
+        IntercambioResponse response = new IntercambioResponse();
+        response.setColeccionistaId(coincidencia.coleccionistaId());
+        response.setIntercambios(coincidencia.intercambios());
+        response.setLaminasQueDoy(coincidencia.doy().stream().toArray());
+        response.setLaminasQueRecibo(coincidencia.recibo().stream().toArray());
+        return response;
+    }
+
+    private record Coincidencia(Long coleccionistaId, BitSet doy, BitSet recibo) {
+
+        int intercambios() {
+            return Math.min(doy.cardinality(), recibo.cardinality());
+        }
+
+        int total() {
+            return doy.cardinality() + recibo.cardinality();
+        }
+    }
+}
@@ -2,15 +2,45 @@ package com.example.gestion_laminas_albunes_api.service;
 
 import com.example.gestion_laminas_albunes_api.model.Album;
 import com.example.gestion_laminas_albunes_api.model.Lamina;
+import com.example.gestion_laminas_albunes_api.model.LaminaColeccion;
 import com.example.gestion_laminas_albunes_api.repository.AlbumRepository;
+import com.example.gestion_laminas_albunes_api.repository.EstadoLamina;
+import com.example.gestion_laminas_albunes_api.repository.EstadoLaminaLote;
+import com.example.gestion_laminas_albunes_api.repository.LaminaColeccionRepository;
+import com.example.gestion_laminas_albunes_api.repository.LaminaConEstado;
 import com.example.gestion_laminas_albunes_api.repository.LaminaRepository;
+import com.example.gestion_laminas_albunes_api.request.FilaLaminaRequest;
 import com.example.gestion_laminas_albunes_api.request.LaminaRequest;
+import com.example.gestion_laminas_albunes_api.request.OperacionLaminaRequest;
+import com.example.gestion_laminas_albunes_api.request.TipoOperacionLamina;
+import com.example.gestion_laminas_albunes_api.response.CambioAlbumResponse;
+import com.example.gestion_laminas_albunes_api.response.EstadoNumeroResponse;
+import com.example.gestion_laminas_albunes_api.response.ImportacionResponse;
+import com.example.gestion_laminas_albunes_api.response.LaminaConEstadoResponse;
 import com.example.gestion_laminas_albunes_api.response.LaminaRepetidaResponse;
+import com.example.gestion_laminas_albunes_api.response.PaginaLaminas;
+import com.example.gestion_laminas_albunes_api.response.ResultadoOperacionResponse;
+import com.example.gestion_laminas_albunes_api.response.TipoCambioAlbum;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class LaminaService {
@@ -18,26 +48,65 @@ public class LaminaService {
     @Autowired
     private LaminaRepository laminaRepository;
 
+    @Autowired
+    private LaminaColeccionRepository laminaColeccionRepository;
+
     @Autowired
     private AlbumRepository albumRepository;
 
-    /* Obtener todas las láminas de un álbum */
-    public List<Lamina> obtenerPorAlbum(Long albumId) {
-        if (!validarAlbumExiste(albumId)) {
-            return null;
-        }
-        return laminaRepository.findByAlbumId(albumId);
+    @Autowired
+    private AlbumService albumService;
+
+    @Autowired
+    private CacheAlbumes cacheAlbumes;
+
+    @Autowired
+    private CompletitudService completitudService;
+
+    @Autowired
+    private DifusorCambiosAlbum difusorCambios;
+
+    @Autowired
+    private RepetidasDiferidas repetidasDiferidas;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private static final int TAMANO_PAGINA_DEFECTO = 100;
+    private static final int TAMANO_PAGINA_MAXIMO = 1000;
+    private static final int TAMANO_LOTE_IMPORTACION = 1000;
+
+    /* Obtener todas las láminas de un álbum con su estado en la colección (vacío si el álbum no existe) */
+    @Transactional(readOnly = true)
+    public Optional<List<LaminaConEstadoResponse>> obtenerPorAlbum(Long albumId, Long coleccionistaId) {
+        repetidasDiferidas.vaciar(albumId, coleccionistaId);
+        return filasDelAlbum(laminaRepository.findByAlbumIdConAlbum(albumId, coleccionistaId),
+                LaminaService::convertir);
     }
 
-    /* Obtener una lámina por ID */
-    public Lamina obtenerPorId(Long id) {
-        return laminaRepository.findById(id).orElse(null);
+    /* Obtener una lámina por ID con su estado en la colección */
+    @Transactional(readOnly = true)
+    public LaminaConEstadoResponse obtenerPorId(Long id, Long coleccionistaId) {
+        // Solo la colección del álbum de la lámina puede tener repetidas pendientes que le afecten
+        if (repetidasDiferidas.hayPendientes()) {
+            laminaRepository.findAlbumIdById(id)
+                    .ifPresent(albumId -> repetidasDiferidas.vaciar(albumId, coleccionistaId));
+        }
+        return laminaRepository.findConEstadoById(id, coleccionistaId).map(LaminaService::convertir).orElse(null);
     }
 
-    /* Crear una nueva lámina en un álbum */
+    /*
+     * Crear una nueva lámina en el catálogo de un álbum. Si la petición trae
+     * adquirida o repetidas, se guardan en la colección de quien la crea. Lanza
+     * IllegalArgumentException si el número no está entre 1 y el total del álbum.
+     */
     @Transactional
-    public Lamina crear(Long albumId, LaminaRequest request) {
+    public LaminaConEstadoResponse crear(Long albumId, Long coleccionistaId, LaminaRequest request) {
         Album album = albumRepository.findById(albumId).orElse(null);
+        if (album == null) {
+            return null;
+        }
+        validarNumero(album, request.getNumero());
 
         // Verificar si ya existe una lámina con ese número en el álbum
         Lamina laminaExistente = laminaRepository.findByAlbumIdAndNumero(albumId, request.getNumero());
@@ -49,127 +118,552 @@ public class LaminaService {
         lamina.setNumero(request.getNumero());
         lamina.setNombre(request.getNombre());
         lamina.setImagen(request.getImagen());
-        lamina.setAdquirida(request.getAdquirida() != null ? request.getAdquirida() : false);
-        lamina.setCantidadRepetidas(request.getCantidadRepetidas() != null ? request.getCantidadRepetidas() : 0);
         lamina.setAlbum(album);
 
-        return laminaRepository.save(lamina);
+        albumRepository.incrementarVersion(albumId);
+        Lamina guardada = laminaRepository.save(lamina);
+        LaminaConEstadoResponse creada = convertir(guardada, false, 0);
+        difusorCambios.laminaModificada(TipoCambioAlbum.LAMINA_CREADA, albumId, null, creada);
+
+        boolean adquirida = Boolean.TRUE.equals(request.getAdquirida());
+        int repetidas = request.getCantidadRepetidas() != null ? Math.max(request.getCantidadRepetidas(), 0) : 0;
+        if (adquirida || repetidas > 0) {
+            laminaColeccionRepository.guardarEstado(guardada.getId(), coleccionistaId, adquirida, repetidas);
+            laminaColeccionRepository.incrementarVersion(albumId, coleccionistaId);
+            creada = convertir(guardada, adquirida, repetidas);
+            difusorCambios.laminaModificada(TipoCambioAlbum.LAMINA_MODIFICADA, albumId, coleccionistaId, creada);
+        }
+        return creada;
     }
 
-    /* Crear múltiples láminas a partir de una lista de números */
+    /*
+     * Crear múltiples láminas en el catálogo a partir de una lista de números.
+     * Lanza IllegalArgumentException si algún número está fuera de rango.
+     */
     @Transactional
-    public List<Lamina> crearMultiples(Long albumId, List<Integer> numeros) {
+    public List<LaminaConEstadoResponse> crearMultiples(Long albumId, List<Integer> numeros) {
         Album album = albumRepository.findById(albumId).orElse(null);
+        if (album == null) {
+            return null;
+        }
+        for (Integer numero : numeros) {
+            if (numero != null) {
+                validarNumero(album, numero);
+            }
+        }
 
-        List<Lamina> laminasCreadas = numeros.stream()
-                .filter(numero -> laminaRepository.findByAlbumIdAndNumero(albumId, numero) == null)
-                .map(numero -> {
-                    Lamina lamina = new Lamina();
-                    lamina.setNumero(numero);
-                    lamina.setNombre("Lámina " + numero);
-                    lamina.setAdquirida(false);
-                    lamina.setCantidadRepetidas(0);
-                    lamina.setAlbum(album);
-                    return laminaRepository.save(lamina);
-                })
-                .collect(Collectors.toList());
+        // Una sola consulta para conocer los números ya registrados en el álbum
+        Set<Integer> existentes = new HashSet<>(laminaRepository.findNumerosByAlbumId(albumId));
+
+        // Eliminar duplicados de la entrada en memoria, conservando el orden recibido
+        Set<Integer> nuevos = new LinkedHashSet<>();
+        for (Integer numero : numeros) {
+            if (numero != null && !existentes.contains(numero)) {
+                nuevos.add(numero);
+            }
+        }
+
+        if (nuevos.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        albumRepository.incrementarVersion(albumId);
 
-        return laminasCreadas;
+        // Inserción multi-fila: una sola sentencia para todas las láminas nuevas (sin estado en ninguna colección)
+        List<LaminaConEstadoResponse> creadas = laminaRepository
+                .insertarMultiples(albumId, nuevos.toArray(new Integer[0])).stream()
+                .map(lamina -> convertir(lamina, false, 0))
+                .collect(Collectors.toList());
+        difusorCambios.laminasModificadas(TipoCambioAlbum.LAMINA_CREADA, albumId, creadas);
+        return creadas;
     }
 
-    /* Actualizar una lámina existente */
+    /*
+     * Actualizar una lámina: número, nombre e imagen cambian el catálogo (para
+     * todos); adquirida y repetidas, solo la colección del coleccionista. Lanza
+     * IllegalArgumentException si el nuevo número está fuera de rango.
+     */
     @Transactional
-    public Lamina actualizar(Long id, LaminaRequest request) {
+    public LaminaConEstadoResponse actualizar(Long id, Long coleccionistaId, LaminaRequest request) {
         Lamina lamina = laminaRepository.findById(id).orElse(null);
 
         if (lamina == null) {
             return null;
         }
+        Long albumId = lamina.getAlbum().getId();
+        repetidasDiferidas.vaciar(albumId, coleccionistaId);
 
         // Validar número duplicado dentro del mismo álbum
-        if (request.getNumero() != null) {
-            Lamina existente = laminaRepository.findByAlbumIdAndNumero(lamina.getAlbum().getId(), request.getNumero());
+        boolean cambiaNumero = request.getNumero() != null && !request.getNumero().equals(lamina.getNumero());
+        if (cambiaNumero) {
+            validarNumero(lamina.getAlbum(), request.getNumero());
+            Lamina existente = laminaRepository.findByAlbumIdAndNumero(albumId, request.getNumero());
             if (existente != null && !existente.getId().equals(lamina.getId())) {
                 return null;
             }
             lamina.setNumero(request.getNumero());
         }
 
-        if (request.getNumero() != null)
-            lamina.setNumero(request.getNumero());
+        boolean cambiaCatalogo = cambiaNumero || request.getNombre() != null || request.getImagen() != null;
         if (request.getNombre() != null)
             lamina.setNombre(request.getNombre());
         if (request.getImagen() != null)
             lamina.setImagen(request.getImagen());
-        if (request.getAdquirida() != null)
-            lamina.setAdquirida(request.getAdquirida());
-        if (request.getCantidadRepetidas() != null)
-            lamina.setCantidadRepetidas(request.getCantidadRepetidas());
 
-        return laminaRepository.save(lamina);
+        if (cambiaCatalogo) {
+            albumRepository.incrementarVersion(albumId);
+            laminaRepository.save(lamina);
+            // El número de la lámina cambió para todos: cada cliente vuelve a leer el álbum
+            if (cambiaNumero) {
+                difusorCambios.albumModificado(TipoCambioAlbum.RESINCRONIZAR, albumId);
+            }
+        }
+
+        if (request.getAdquirida() != null || request.getCantidadRepetidas() != null) {
+            laminaColeccionRepository.guardarEstado(id, coleccionistaId, request.getAdquirida(),
+                    request.getCantidadRepetidas());
+            laminaColeccionRepository.incrementarVersion(albumId, coleccionistaId);
+            cacheAlbumes.coleccionModificada(albumId, coleccionistaId);
+        }
+
+        LaminaConEstadoResponse actualizada = obtenerPorId(id, coleccionistaId);
+        difusorCambios.laminaModificada(TipoCambioAlbum.LAMINA_MODIFICADA, albumId, coleccionistaId, actualizada);
+        return actualizada;
     }
 
-    /* Marcar una lámina como adquirida */
+    /* Marcar una lámina como adquirida en la colección (un solo upsert atómico) */
     @Transactional
-    public Lamina marcarAdquirida(Long albumId, Integer numero) {
-        Lamina lamina = laminaRepository.findByAlbumIdAndNumero(albumId, numero);
+    public LaminaConEstadoResponse marcarAdquirida(Long albumId, Long coleccionistaId, Integer numero) {
+        repetidasDiferidas.vaciar(albumId, coleccionistaId);
+        LaminaConEstado lamina = laminaColeccionRepository.marcarAdquirida(albumId, numero, coleccionistaId);
         if (lamina == null) {
             return null;
         }
-        lamina.setAdquirida(true);
-        return laminaRepository.save(lamina);
+        laminaColeccionRepository.incrementarVersion(albumId, coleccionistaId);
+        cacheAlbumes.coleccionModificada(albumId, coleccionistaId);
+        LaminaConEstadoResponse adquirida = convertir(lamina);
+        difusorCambios.laminaModificada(TipoCambioAlbum.LAMINA_ADQUIRIDA, albumId, coleccionistaId, adquirida);
+        return adquirida;
     }
 
-    /* Agregar una lámina repetida */
+    /* Agregar una lámina repetida en la colección (incremento atómico, sin lectura previa) */
     @Transactional
-    public Lamina agregarRepetida(Long albumId, Integer numero) {
-        Lamina lamina = laminaRepository.findByAlbumIdAndNumero(albumId, numero);
+    public LaminaConEstadoResponse agregarRepetida(Long albumId, Long coleccionistaId, Integer numero) {
+        LaminaConEstado lamina = laminaColeccionRepository.sumarRepetidas(albumId, numero, coleccionistaId, 1);
         if (lamina == null) {
-            throw new RuntimeException("Lámina no encontrada con número " + numero + " en el álbum " + albumId);
+            return null;
         }
-        // Incremento seguro ante posibles valores nulos en registros antiguos
-        Integer actuales = lamina.getCantidadRepetidas();
-        lamina.setCantidadRepetidas((actuales == null ? 0 : actuales) + 1);
-        return laminaRepository.save(lamina);
+        laminaColeccionRepository.incrementarVersion(albumId, coleccionistaId);
+        cacheAlbumes.coleccionModificada(albumId, coleccionistaId);
+        LaminaConEstadoResponse repetida = convertir(lamina);
+        difusorCambios.laminaModificada(TipoCambioAlbum.REPETIDA_AGREGADA, albumId, coleccionistaId, repetida);
+        return repetida;
     }
 
-    /* Eliminar una lámina */
+    /*
+     * Aplicar un lote de operaciones en una sola transacción, en el orden
+     * recibido: las repetidas nunca bajan de 0 en ningún paso. Se escriben con
+     * una sentencia para las adquiridas y otra para las repetidas, donde la
+     * secuencia de cada número se reduce a GREATEST(actual + delta, piso). Cada
+     * resultado trae el estado de la lámina justo después de su operación.
+     * Devuelve null si el álbum no existe.
+     */
     @Transactional
-    public Lamina eliminar(Long id) {
+    public List<ResultadoOperacionResponse> aplicarOperaciones(Long albumId, Long coleccionistaId,
+            List<OperacionLaminaRequest> operaciones) {
+        if (!validarAlbumExiste(albumId)) {
+            return null;
+        }
+        repetidasDiferidas.vaciar(albumId, coleccionistaId);
+
+        Set<Integer> adquirir = new LinkedHashSet<>();
+        // Por número: delta y piso de la secuencia de sumas y restas (x -> max(x + delta, piso))
+        Map<Integer, int[]> secuencias = new LinkedHashMap<>();
+        for (OperacionLaminaRequest operacion : operaciones) {
+            if (operacion.getNumero() == null || operacion.getOperacion() == null) {
+                continue;
+            }
+            switch (operacion.getOperacion()) {
+                case ADQUIRIR:
+                    adquirir.add(operacion.getNumero());
+                    break;
+                case AGREGAR_REPETIDA:
+                case QUITAR_REPETIDA:
+                    int paso = operacion.getOperacion() == TipoOperacionLamina.AGREGAR_REPETIDA ? 1 : -1;
+                    int[] secuencia = secuencias.computeIfAbsent(operacion.getNumero(), numero -> new int[2]);
+                    secuencia[0] += paso;
+                    secuencia[1] = Math.max(secuencia[1] + paso, 0);
+                    break;
+            }
+        }
+
+        // Estado previo de cada número; las repetidas se escriben antes de marcar, así se lee la adquisición previa
+        Map<Integer, int[]> previos = new HashMap<>();
+        Map<Integer, Boolean> adquiridasPrevias = new HashMap<>();
+        Map<Integer, Integer> deltas = new HashMap<>();
+        if (!secuencias.isEmpty()) {
+            int tamano = secuencias.size();
+            Integer[] numeros = new Integer[tamano];
+            Integer[] deltasLote = new Integer[tamano];
+            Integer[] pisos = new Integer[tamano];
+            int i = 0;
+            for (Map.Entry<Integer, int[]> secuencia : secuencias.entrySet()) {
+                numeros[i] = secuencia.getKey();
+                deltasLote[i] = secuencia.getValue()[0];
+                pisos[i] = secuencia.getValue()[1];
+                deltas.put(numeros[i], deltasLote[i]);
+                i++;
+            }
+            for (EstadoLaminaLote estado : laminaColeccionRepository.sumarRepetidasEnLote(albumId, numeros,
+                    deltasLote, pisos, coleccionistaId)) {
+                previos.put(estado.getNumero(), new int[] { estado.getRepetidasPrevias() });
+                adquiridasPrevias.put(estado.getNumero(), estado.getAdquirida());
+            }
+        }
+        // Estado final por número; la última sentencia refleja también la anterior
+        Map<Integer, EstadoLamina> estados = new HashMap<>();
+        if (!adquirir.isEmpty()) {
+            for (EstadoLamina estado : laminaColeccionRepository.marcarAdquiridas(albumId,
+                    adquirir.toArray(new Integer[0]), coleccionistaId)) {
+                estados.put(estado.getNumero(), estado);
+                previos.putIfAbsent(estado.getNumero(), new int[] { estado.getCantidadRepetidas() });
+            }
+        }
+        if (!previos.isEmpty()) {
+            laminaColeccionRepository.incrementarVersion(albumId, coleccionistaId);
+            cacheAlbumes.coleccionModificada(albumId, coleccionistaId);
+        }
+
+        // Recorrer el lote en orden, desde el estado previo, para informar el estado después de cada operación
+        Map<Integer, Boolean> adquiridas = new HashMap<>(adquiridasPrevias);
+        List<ResultadoOperacionResponse> resultados = new ArrayList<>();
+        for (OperacionLaminaRequest operacion : operaciones) {
+            int[] repetidas = operacion.getNumero() != null && operacion.getOperacion() != null
+                    ? previos.get(operacion.getNumero())
+                    : null;
+            ResultadoOperacionResponse resultado = new ResultadoOperacionResponse();
+            resultado.setNumero(operacion.getNumero());
+            resultado.setOperacion(operacion.getOperacion());
+            resultado.setAplicada(repetidas != null);
+            if (repetidas != null) {
+                switch (operacion.getOperacion()) {
+                    case ADQUIRIR:
+                        adquiridas.put(operacion.getNumero(), true);
+                        break;
+                    case AGREGAR_REPETIDA:
+                        repetidas[0]++;
+                        break;
+                    case QUITAR_REPETIDA:
+                        repetidas[0] = Math.max(repetidas[0] - 1, 0);
+                        break;
+                }
+                resultado.setAdquirida(Boolean.TRUE.equals(adquiridas.get(operacion.getNumero())));
+                resultado.setCantidadRepetidas(repetidas[0]);
+            }
+            resultados.add(resultado);
+        }
+        if (!previos.isEmpty()) {
+            publicarCambiosLote(albumId, coleccionistaId, previos, adquiridas, deltas);
+        }
+        return resultados;
+    }
+
+    /* Un evento por lámina afectada por el lote, con su estado final */
+    private void publicarCambiosLote(Long albumId, Long coleccionistaId, Map<Integer, int[]> repetidas,
+            Map<Integer, Boolean> adquiridas, Map<Integer, Integer> deltas) {
+        if (!difusorCambios.tieneSuscriptores(albumId)) {
+            return;
+        }
+        List<CambioAlbumResponse> cambios = new ArrayList<>(repetidas.size());
+        repetidas.forEach((numero, cantidad) -> {
+            int delta = deltas.getOrDefault(numero, 0);
+            TipoCambioAlbum tipo = delta > 0 ? TipoCambioAlbum.REPETIDA_AGREGADA
+                    : delta < 0 ? TipoCambioAlbum.REPETIDA_QUITADA
+                    : TipoCambioAlbum.LAMINA_ADQUIRIDA;
+            cambios.add(new CambioAlbumResponse(tipo, albumId, numero,
+                    Boolean.TRUE.equals(adquiridas.get(numero)), cantidad[0]));
+        });
+        difusorCambios.publicar(albumId, coleccionistaId, cambios);
+    }
+
+    /*
+     * Importar láminas. El archivo se lee completo antes de abrir la transacción,
+     * así un cliente que sube despacio no retiene una conexión ni locks: las filas
+     * se guardan por número (gana la última), de modo que la memoria queda acotada
+     * por el total del álbum. Después se escriben en una sola transacción, de a
+     * lotes de TAMANO_LOTE_IMPORTACION con una sentencia por lote: en el catálogo
+     * las nuevas se insertan y las existentes (mismo número) se reemplazan; el
+     * estado de cada fila se guarda en la colección del coleccionista. Las filas
+     * sin número o con un número fuera de 1..total se omiten. Si una fila no se
+     * puede leer no se importa nada. Devuelve null si el álbum no existe.
+     */
+    public ImportacionResponse importar(Long albumId, Long coleccionistaId, Iterator<FilaLaminaRequest> filas) {
+        Album album = albumRepository.findById(albumId).orElse(null);
+        if (album == null) {
+            return null;
+        }
+        ImportacionResponse resultado = new ImportacionResponse();
+        Map<Integer, FilaLaminaRequest> porNumero = new LinkedHashMap<>();
+        while (filas.hasNext()) {
+            FilaLaminaRequest fila = filas.next();
+            if (fila == null || !album.admiteNumero(fila.getNumero())) {
+                resultado.setOmitidas(resultado.getOmitidas() + 1);
+                continue;
+            }
+            porNumero.remove(fila.getNumero());
+            porNumero.put(fila.getNumero(), fila);
+        }
+        if (!porNumero.isEmpty()) {
+            resultado.setImportadas(new TransactionTemplate(transactionManager).execute(
+                    estado -> escribirImportacion(albumId, coleccionistaId, porNumero.values())));
+        }
+        return resultado;
+    }
+
+    private int escribirImportacion(Long albumId, Long coleccionistaId, Collection<FilaLaminaRequest> filas) {
+        repetidasDiferidas.vaciar(albumId, coleccionistaId);
+        int importadas = 0;
+        List<FilaLaminaRequest> lote = new ArrayList<>(Math.min(filas.size(), TAMANO_LOTE_IMPORTACION));
+        for (FilaLaminaRequest fila : filas) {
+            lote.add(fila);
+            if (lote.size() == TAMANO_LOTE_IMPORTACION) {
+                importadas += escribirLote(albumId, coleccionistaId, lote);
+                lote.clear();
+            }
+        }
+        if (!lote.isEmpty()) {
+            importadas += escribirLote(albumId, coleccionistaId, lote);
+        }
+
+        if (importadas > 0) {
+            albumRepository.incrementarVersion(albumId);
+            laminaColeccionRepository.incrementarVersion(albumId, coleccionistaId);
+            cacheAlbumes.coleccionModificada(albumId, coleccionistaId);
+            difusorCambios.albumModificado(TipoCambioAlbum.RESINCRONIZAR, albumId);
+        }
+        return importadas;
+    }
+
+    private int escribirLote(Long albumId, Long coleccionistaId, Collection<FilaLaminaRequest> filas) {
+        int tamano = filas.size();
+        Integer[] numeros = new Integer[tamano];
+        String[] nombres = new String[tamano];
+        String[] imagenes = new String[tamano];
+        Boolean[] adquiridas = new Boolean[tamano];
+        Integer[] repetidas = new Integer[tamano];
+        int i = 0;
+        for (FilaLaminaRequest fila : filas) {
+            numeros[i] = fila.getNumero();
+            nombres[i] = fila.getNombre();
+            imagenes[i] = fila.getImagen();
+            adquiridas[i] = fila.getAdquirida();
+            repetidas[i] = fila.getCantidadRepetidas();
+            i++;
+        }
+        return laminaRepository.importarLote(albumId, coleccionistaId, numeros, nombres, imagenes, adquiridas,
+                repetidas);
+    }
+
+    /* Eliminar una lámina de la colección: no se borra del catálogo, queda como no adquirida */
+    @Transactional
+    public LaminaConEstadoResponse eliminar(Long id, Long coleccionistaId) {
         Lamina lamina = laminaRepository.findById(id).orElse(null);
         if (lamina == null) {
             return null;
         }
-        // En lugar de borrar físicamente, marcamos como no adquirida
-        lamina.setAdquirida(false);
-        return laminaRepository.save(lamina);
+        Long albumId = lamina.getAlbum().getId();
+        repetidasDiferidas.vaciar(albumId, coleccionistaId);
+        LaminaColeccion estado = laminaColeccionRepository.guardarEstado(id, coleccionistaId, false, null);
+        laminaColeccionRepository.incrementarVersion(albumId, coleccionistaId);
+        cacheAlbumes.coleccionModificada(albumId, coleccionistaId);
+        LaminaConEstadoResponse eliminada = convertir(lamina, estado.getAdquirida(), estado.getCantidadRepetidas());
+        difusorCambios.laminaModificada(TipoCambioAlbum.LAMINA_MODIFICADA, albumId, coleccionistaId, eliminada);
+        return eliminada;
+    }
+
+    /* Obtener láminas faltantes de la colección (vacío si el álbum no existe) */
+    @Transactional(readOnly = true)
+    public Optional<List<LaminaConEstadoResponse>> obtenerFaltantes(Long albumId, Long coleccionistaId) {
+        repetidasDiferidas.vaciar(albumId, coleccionistaId);
+        return filasDelAlbum(laminaRepository.findFaltantesConAlbum(albumId, coleccionistaId),
+                LaminaService::convertir);
+    }
+
+    /* Números de las láminas faltantes, desde el mapa de bits (null si el álbum no existe) */
+    @Transactional(readOnly = true)
+    public int[] obtenerNumerosFaltantes(Long albumId, Long coleccionistaId) {
+        if (!validarAlbumExiste(albumId)) {
+            return null;
+        }
+        return completitudService.obtener(albumId, coleccionistaId).faltantes();
     }
 
-    /* Obtener láminas faltantes de un álbum */
-    public List<Lamina> obtenerFaltantes(Long albumId) {
+    /* Consultar si una lámina está registrada y adquirida (null si el álbum no existe) */
+    @Transactional(readOnly = true)
+    public EstadoNumeroResponse consultarNumero(Long albumId, Long coleccionistaId, Integer numero) {
         if (!validarAlbumExiste(albumId)) {
             return null;
         }
-        return laminaRepository.findByAlbumIdAndAdquiridaFalse(albumId);
+        CompletitudAlbum completitud = completitudService.obtener(albumId, coleccionistaId);
+        EstadoNumeroResponse response = new EstadoNumeroResponse();
+        response.setNumero(numero);
+        response.setRegistrada(completitud.estaRegistrada(numero));
+        response.setAdquirida(completitud.estaAdquirida(numero));
+        return response;
+    }
+
+    /* Obtener láminas repetidas de la colección (vacío si el álbum no existe) */
+    @Transactional(readOnly = true)
+    public Optional<List<LaminaRepetidaResponse>> obtenerRepetidas(Long albumId, Long coleccionistaId) {
+        repetidasDiferidas.vaciar(albumId, coleccionistaId);
+        return filasDelAlbum(laminaRepository.findRepetidasConAlbum(albumId, coleccionistaId),
+                this::convertirARepetidaResponse);
     }
 
-    /* Obtener láminas repetidas de un álbum */
-    public List<LaminaRepetidaResponse> obtenerRepetidas(Long albumId) {
+    /* Obtener una página de láminas de un álbum ordenada por número */
+    @Transactional(readOnly = true)
+    public PaginaLaminas<LaminaConEstadoResponse> obtenerPaginaPorAlbum(Long albumId, Long coleccionistaId,
+            Integer cursor, Integer tamano) {
+        repetidasDiferidas.vaciar(albumId, coleccionistaId);
         if (!validarAlbumExiste(albumId)) {
             return null;
         }
-        return laminaRepository.findByAlbumIdAndCantidadRepetidasGreaterThan(albumId, 0).stream()
-                .map(this::convertirARepetidaResponse)
-                .collect(Collectors.toList());
+        int limite = normalizarTamano(tamano);
+        List<LaminaConEstado> laminas = laminaRepository.findPagina(albumId, coleccionistaId,
+                normalizarCursor(cursor), limite + 1);
+        return armarPagina(laminas, limite, LaminaService::convertir);
+    }
+
+    /* Obtener una página de láminas faltantes de la colección */
+    @Transactional(readOnly = true)
+    public PaginaLaminas<LaminaConEstadoResponse> obtenerPaginaFaltantes(Long albumId, Long coleccionistaId,
+            Integer cursor, Integer tamano) {
+        repetidasDiferidas.vaciar(albumId, coleccionistaId);
+        if (!validarAlbumExiste(albumId)) {
+            return null;
+        }
+        int limite = normalizarTamano(tamano);
+        List<LaminaConEstado> laminas = laminaRepository.findPaginaFaltantes(albumId, coleccionistaId,
+                normalizarCursor(cursor), limite + 1);
+        return armarPagina(laminas, limite, LaminaService::convertir);
+    }
+
+    /* Obtener una página de láminas repetidas de la colección */
+    @Transactional(readOnly = true)
+    public PaginaLaminas<LaminaRepetidaResponse> obtenerPaginaRepetidas(Long albumId, Long coleccionistaId,
+            Integer cursor, Integer tamano) {
+        repetidasDiferidas.vaciar(albumId, coleccionistaId);
+        if (!validarAlbumExiste(albumId)) {
+            return null;
+        }
+        int limite = normalizarTamano(tamano);
+        List<LaminaConEstado> laminas = laminaRepository.findPaginaRepetidas(albumId, coleccionistaId,
+                normalizarCursor(cursor), limite + 1);
+        return armarPagina(laminas, limite, this::convertirARepetidaResponse);
+    }
+
+    /*
+     * Recorrer las láminas de un álbum fila a fila, entregando cada una al
+     * consumidor. Antes se llama a prepararTransmision, fuera de esta transacción de solo lectura.
+     * Las filas son proyecciones, no entidades: la memoria se mantiene constante.
+     */
+    @Transactional(readOnly = true)
+    public void transmitir(Long albumId, Long coleccionistaId, FiltroLaminas filtro, Consumer<Object> consumidor) {
+        try (Stream<LaminaConEstado> laminas = abrirStream(albumId, coleccionistaId, filtro)) {
+            laminas.forEach(lamina -> consumidor.accept(filtro == FiltroLaminas.REPETIDAS
+                    ? convertirARepetidaResponse(lamina)
+                    : convertir(lamina)));
+        }
+    }
+
+    private Stream<LaminaConEstado> abrirStream(Long albumId, Long coleccionistaId, FiltroLaminas filtro) {
+        switch (filtro) {
+            case FALTANTES:
+                return laminaRepository.streamFaltantes(albumId, coleccionistaId);
+            case REPETIDAS:
+                return laminaRepository.streamRepetidas(albumId, coleccionistaId);
+            default:
+                return laminaRepository.streamPorAlbum(albumId, coleccionistaId);
+        }
+    }
+
+    /*
+     * Interpretar el resultado de un LEFT JOIN desde el álbum: sin filas significa
+     * que el álbum no existe; una fila con ID nulo corresponde a un álbum sin láminas
+     */
+    private <T> Optional<List<T>> filasDelAlbum(List<LaminaConEstado> filas, Function<LaminaConEstado, T> conversion) {
+        if (filas.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(filas.stream()
+                .filter(fila -> fila.getId() != null)
+                .map(conversion)
+                .collect(Collectors.toList()));
+    }
+
+    /* Armar la página y calcular el cursor siguiente a partir de la fila extra */
+    private <T> PaginaLaminas<T> armarPagina(List<LaminaConEstado> laminas, int limite,
+            Function<LaminaConEstado, T> conversion) {
+        Integer siguienteCursor = null;
+        if (laminas.size() > limite) {
+            laminas = laminas.subList(0, limite);
+            siguienteCursor = laminas.get(limite - 1).getNumero();
+        }
+        List<T> datos = laminas.stream().map(conversion).collect(Collectors.toList());
+        return new PaginaLaminas<>(datos, siguienteCursor);
+    }
+
+    private int normalizarTamano(Integer tamano) {
+        if (tamano == null) {
+            return TAMANO_PAGINA_DEFECTO;
+        }
+        return Math.max(1, Math.min(tamano, TAMANO_PAGINA_MAXIMO));
+    }
+
+    private Integer normalizarCursor(Integer cursor) {
+        return cursor != null ? cursor : Integer.MIN_VALUE;
+    }
+
+    /* Versión del álbum y de la colección, para las ETag de sus consultas (null si el álbum no existe) */
+    public String obtenerVersionColeccion(Long albumId, Long coleccionistaId) {
+        return albumService.obtenerVersion(albumId, coleccionistaId);
+    }
+
+    /* Validar que el álbum existe y escribir las repetidas pendientes de la colección antes de transmitirla */
+    public boolean prepararTransmision(Long albumId, Long coleccionistaId) {
+        if (!validarAlbumExiste(albumId)) {
+            return false;
+        }
+        repetidasDiferidas.vaciar(albumId, coleccionistaId);
+        return true;
+    }
+
+    private static void validarNumero(Album album, Integer numero) {
+        if (!album.admiteNumero(numero)) {
+            throw new IllegalArgumentException("El número de lámina debe estar entre 1 y " + Math.min(
+                    album.getTotalLaminas() != null ? album.getTotalLaminas() : Album.MAXIMO_LAMINAS,
+                    Album.MAXIMO_LAMINAS));
+        }
+    }
+
+    /* Validar que el álbum existe (consulta en caché) */
+    public boolean validarAlbumExiste(Long albumId) {
+        return albumService.existe(albumId);
+    }
+
+    /* Lámina con su estado en la colección, tal como se entrega al cliente */
+    static LaminaConEstadoResponse convertir(LaminaConEstado lamina) {
+        return new LaminaConEstadoResponse(lamina.getId(), lamina.getNumero(), lamina.getNombre(),
+                lamina.getImagen(), lamina.getAdquirida(), lamina.getCantidadRepetidas(), lamina.getVersion());
     }
 
-    /* Validar que el álbum existe */
-    private boolean validarAlbumExiste(Long albumId) {
-        return albumRepository.existsById(albumId);
+    private static LaminaConEstadoResponse convertir(Lamina lamina, Boolean adquirida, Integer cantidadRepetidas) {
+        return new LaminaConEstadoResponse(lamina.getId(), lamina.getNumero(), lamina.getNombre(),
+                lamina.getImagen(), adquirida, cantidadRepetidas, lamina.getVersion());
     }
 
-    /* Convertir entidad Lamina a LaminaRepetidaResponse */
-    private LaminaRepetidaResponse convertirARepetidaResponse(Lamina lamina) {
+    /* Convertir una lámina con estado a LaminaRepetidaResponse */
+    private LaminaRepetidaResponse convertirARepetidaResponse(LaminaConEstado lamina) {
         LaminaRepetidaResponse response = new LaminaRepetidaResponse();
         response.setId(lamina.getId());
         response.setNumero(lamina.getNumero());
@@ -0,0 +1,368 @@
+package com.example.gestion_laminas_albunes_api.service;
+
+import com.example.gestion_laminas_albunes_api.jdbc.EnrutadorLecturas;
+import com.example.gestion_laminas_albunes_api.repository.EstadoLamina;
+import com.example.gestion_laminas_albunes_api.repository.EstadoLaminaLote;
+import com.example.gestion_laminas_albunes_api.repository.LaminaColeccionRepository;
+import com.example.gestion_laminas_albunes_api.repository.LaminaConEstado;
+import com.example.gestion_laminas_albunes_api.repository.LaminaRepository;
+import com.example.gestion_laminas_albunes_api.response.CambioAlbumResponse;
+import com.example.gestion_laminas_albunes_api.response.LaminaConEstadoResponse;
+import com.example.gestion_laminas_albunes_api.response.TipoCambioAlbum;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Escritura diferida de repetidas (opcional, app.repetidas.diferidas.habilitadas).
+ * Cada toque de "agregar repetida" se suma en memoria, en el buffer de su
+ * colección (álbum y coleccionista, cada una con su propio lock), y las sumas de
+ * la misma lámina se combinan. Cada intervalo, o al llegar al máximo de toques
+ * pendientes de una colección, se escriben con un solo upsert por lote en una
+ * transacción. Antes de leer o modificar una colección se escriben sus
+ * pendientes, así cada coleccionista ve sus propios toques; al apagar la
+ * aplicación se escriben todos. Si la aplicación termina de golpe se pierden
+ * como máximo los toques de un intervalo.
+ */
+@Service
+public class RepetidasDiferidas {
+
+    private static final Logger log = LoggerFactory.getLogger(RepetidasDiferidas.class);
+
+    @Value("${app.repetidas.diferidas.habilitadas:false}")
+    private boolean habilitadas;
+
+    @Value("${app.repetidas.diferidas.intervalo:200ms}")
+    private Duration intervalo;
+
+    @Value("${app.repetidas.diferidas.maximo-pendientes:100}")
+    private int maximoPendientes;
+
+    @Autowired
+    private LaminaRepository laminaRepository;
+
+    @Autowired
+    private LaminaColeccionRepository laminaColeccionRepository;
+
+    @Autowired
+    private CacheAlbumes cacheAlbumes;
+
+    @Autowired
+    private DifusorCambiosAlbum difusorCambios;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    private final Map<ClaveColeccion, Coleccion> colecciones = new ConcurrentHashMap<>();
+
+    private final AtomicInteger toquesPendientes = new AtomicInteger();
+
+    private final ScheduledExecutorService escrituras = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().daemon().name("repetidas-diferidas").factory());
+
+    private TransactionTemplate transaccion;
+    private Counter toques;
+    private Counter lotes;
+
+    @PostConstruct
+    void iniciar() {
+        transaccion = new TransactionTemplate(transactionManager);
+        transaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        Gauge.builder("stickers.duplicates.pending", toquesPendientes, AtomicInteger::get)
+                .description("Toques de repetidas en memoria pendientes de escribir")
+                .register(registry);
+        toques = Counter.builder("stickers.duplicates.taps")
+                .description("Toques de repetidas recibidos en modo de escritura diferida")
+                .register(registry);
+        lotes = Counter.builder("stickers.duplicates.flushes")
+                .description("Lotes de repetidas escritos (una sentencia por colección)")
+                .register(registry);
+        if (habilitadas) {
+            escrituras.scheduleWithFixedDelay(this::escribirTodas, intervalo.toMillis(), intervalo.toMillis(),
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /* Al apagar (con el servidor web ya detenido) se escriben todos los pendientes */
+    @PreDestroy
+    void detener() throws InterruptedException {
+        escrituras.shutdown();
+        escrituras.awaitTermination(10, TimeUnit.SECONDS);
+        escribirTodas();
+        if (toquesPendientes.get() > 0) {
+            log.error("Se perdieron {} toques de repetidas sin escribir al apagar", toquesPendientes.get());
+        }
+    }
+
+    public boolean habilitadas() {
+        return habilitadas;
+    }
+
+    /* Si alguna colección tiene toques sin escribir (nunca con el modo apagado) */
+    public boolean hayPendientes() {
+        return !colecciones.isEmpty();
+    }
+
+    /*
+     * Sumar una repetida en memoria y devolver la lámina con la cantidad que
+     * tendrá al escribirse (null si el número no está en el catálogo del álbum).
+     * Solo el primer toque de cada lámina, desde la última escritura, consulta la base.
+     */
+    public LaminaConEstadoResponse agregarRepetida(Long albumId, Long coleccionistaId, Integer numero) {
+        ClaveColeccion clave = new ClaveColeccion(albumId, coleccionistaId);
+        while (true) {
+            Coleccion coleccion = colecciones.computeIfAbsent(clave, c -> new Coleccion());
+            coleccion.lock.lock();
+            try {
+                // Se escribió y se quitó del mapa mientras se esperaba el lock: se usa una nueva
+                if (coleccion.descartada) {
+                    continue;
+                }
+                Pendiente pendiente = coleccion.laminas.get(numero);
+                if (pendiente == null) {
+                    LaminaConEstado base = laminaRepository
+                            .findConEstadoByAlbumIdAndNumero(albumId, numero, coleccionistaId).orElse(null);
+                    if (base == null) {
+                        if (coleccion.laminas.isEmpty()) {
+                            descartar(clave, coleccion);
+                        }
+                        return null;
+                    }
+                    pendiente = new Pendiente(base);
+                    coleccion.laminas.put(numero, pendiente);
+                }
+                pendiente.delta++;
+                coleccion.toques++;
+                toquesPendientes.incrementAndGet();
+                toques.increment();
+                LaminaConEstadoResponse respuesta = pendiente.respuesta();
+
+                if (coleccion.toques >= maximoPendientes) {
+                    try {
+                        escribir(clave, coleccion);
+                    } catch (RuntimeException e) {
+                        // El toque ya quedó en el buffer: se reintenta en la próxima escritura periódica
+                        log.warn("No se pudieron escribir las repetidas de {}; se reintentará", clave, e);
+                    }
+                }
+                return respuesta;
+            } finally {
+                coleccion.lock.unlock();
+            }
+        }
+    }
+
+    /*
+     * Escribir los pendientes de una colección. Dentro de una transacción de
+     * escritura se escriben en ella y vuelven al buffer si se revierte; si no, en
+     * una transacción propia (aparte de la de solo lectura que la llama), con el
+     * lock tomado hasta el commit para que una lectura posterior los vea. Las
+     * lecturas la llaman antes de su primera consulta, así no retienen una
+     * conexión mientras se escribe con otra; si se escribió algo, el resto de esa
+     * lectura va a la primaria, donde ya está confirmado.
+     */
+    public void vaciar(Long albumId, Long coleccionistaId) {
+        ClaveColeccion clave = new ClaveColeccion(albumId, coleccionistaId);
+        Coleccion coleccion = colecciones.get(clave);
+        if (coleccion == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            boolean escritas;
+            coleccion.lock.lock();
+            try {
+                escritas = escribir(clave, coleccion);
+            } finally {
+                coleccion.lock.unlock();
+            }
+            if (escritas && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                leerDePrimaria();
+            }
+            return;
+        }
+
+        Map<Integer, Pendiente> tomadas;
+        coleccion.lock.lock();
+        try {
+            if (coleccion.descartada || coleccion.laminas.isEmpty()) {
+                return;
+            }
+            tomadas = coleccion.laminas;
+            descartar(clave, coleccion);
+        } finally {
+            coleccion.lock.unlock();
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int estado) {
+                if (estado != STATUS_COMMITTED) {
+                    restaurar(clave, tomadas);
+                }
+            }
+        });
+        aplicar(clave, tomadas);
+    }
+
+    /* Escribir los pendientes de todas las colecciones de un álbum (por ejemplo, antes de buscar intercambios) */
+    public void vaciarAlbum(Long albumId) {
+        if (colecciones.isEmpty()) {
+            return;
+        }
+        for (ClaveColeccion clave : new ArrayList<>(colecciones.keySet())) {
+            if (clave.albumId().equals(albumId)) {
+                vaciar(clave.albumId(), clave.coleccionistaId());
+            }
+        }
+    }
+
+    private void escribirTodas() {
+        for (ClaveColeccion clave : new ArrayList<>(colecciones.keySet())) {
+            try {
+                vaciar(clave.albumId(), clave.coleccionistaId());
+            } catch (RuntimeException e) {
+                log.warn("No se pudieron escribir las repetidas de {}; se reintentará", clave, e);
+            }
+        }
+    }
+
+    /*
+     * Con el lock de la colección tomado: una transacción propia y, si se confirma, se vacía el buffer.
+     * Devuelve si había algo que escribir
+     */
+    private boolean escribir(ClaveColeccion clave, Coleccion coleccion) {
+        if (coleccion.descartada || coleccion.laminas.isEmpty()) {
+            return false;
+        }
+        transaccion.executeWithoutResult(estado -> aplicar(clave, coleccion.laminas));
+        descartar(clave, coleccion);
+        return true;
+    }
+
+    /*
+     * La transacción de lectura que llamó a vaciar lee lo que se acaba de escribir:
+     * hasta que termine, sus consultas van a la primaria y no a una réplica atrasada
+     */
+    private static void leerDePrimaria() {
+        EnrutadorLecturas.lecturasEnPrimaria(true);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int estado) {
+                EnrutadorLecturas.lecturasEnPrimaria(false);
+            }
+        });
+    }
+
+    /* Quitar la colección del mapa; los toques que esperaban su lock crean una nueva */
+    private void descartar(ClaveColeccion clave, Coleccion coleccion) {
+        coleccion.descartada = true;
+        colecciones.remove(clave, coleccion);
+        toquesPendientes.addAndGet(-coleccion.toques);
+    }
+
+    /* Devolver al buffer los toques de una escritura que se revirtió */
+    private void restaurar(ClaveColeccion clave, Map<Integer, Pendiente> laminas) {
+        while (true) {
+            Coleccion coleccion = colecciones.computeIfAbsent(clave, c -> new Coleccion());
+            coleccion.lock.lock();
+            try {
+                if (coleccion.descartada) {
+                    continue;
+                }
+                laminas.forEach((numero, pendiente) -> {
+                    Pendiente actual = coleccion.laminas.putIfAbsent(numero, pendiente);
+                    if (actual != null) {
+                        actual.delta += pendiente.delta;
+                    }
+                    coleccion.toques += pendiente.delta;
+                    toquesPendientes.addAndGet(pendiente.delta);
+                });
+                return;
+            } finally {
+                coleccion.lock.unlock();
+            }
+        }
+    }
+
+    /* Un solo upsert con la suma de cada lámina, la versión de la colección y los eventos */
+    private void aplicar(ClaveColeccion clave, Map<Integer, Pendiente> laminas) {
+        Integer[] numeros = new Integer[laminas.size()];
+        Integer[] deltas = new Integer[laminas.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Pendiente> lamina : laminas.entrySet()) {
+            numeros[i] = lamina.getKey();
+            deltas[i] = lamina.getValue().delta;
+            i++;
+        }
+        // Solo sumas: el piso de cada secuencia es la misma suma
+        List<EstadoLaminaLote> estados = laminaColeccionRepository.sumarRepetidasEnLote(clave.albumId(), numeros,
+                deltas, deltas, clave.coleccionistaId());
+        lotes.increment();
+        // Sin filas: el álbum o las láminas se eliminaron mientras tanto
+        if (estados.isEmpty()) {
+            return;
+        }
+        laminaColeccionRepository.incrementarVersion(clave.albumId(), clave.coleccionistaId());
+        cacheAlbumes.coleccionModificada(clave.albumId(), clave.coleccionistaId());
+        if (difusorCambios.tieneSuscriptores(clave.albumId())) {
+            List<CambioAlbumResponse> cambios = new ArrayList<>(estados.size());
+            for (EstadoLamina estado : estados) {
+                cambios.add(new CambioAlbumResponse(TipoCambioAlbum.REPETIDA_AGREGADA, clave.albumId(),
+                        estado.getNumero(), estado.getAdquirida(), estado.getCantidadRepetidas()));
+            }
+            difusorCambios.publicar(clave.albumId(), clave.coleccionistaId(), cambios);
+        }
+    }
+
+    /* Buffer de una colección: toques pendientes por número de lámina */
+    private static final class Coleccion {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<Integer, Pendiente> laminas = new HashMap<>();
+        private int toques;
+        private boolean descartada;
+    }
+
+    /* Estado de la lámina leído en el primer toque y repetidas sumadas desde entonces */
+    private static final class Pendiente {
+
+        private final LaminaConEstado base;
+        private int delta;
+
+        Pendiente(LaminaConEstado base) {
+            this.base = base;
+        }
+
+        LaminaConEstadoResponse respuesta() {
+            return new LaminaConEstadoResponse(base.getId(), base.getNumero(), base.getNombre(), base.getImagen(),
+                    base.getAdquirida(), base.getCantidadRepetidas() + delta, base.getVersion());
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.gestion_laminas_albunes_api.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/* Acciones que deben ver solo datos confirmados */
+final class Transacciones {
+
+    private Transacciones() {
+    }
+
+    /* Ejecutar la acción después del commit, o en el momento si no hay transacción activa */
+    static void despuesDelCommit(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+-- Esquema inicial: exactamente el que generaba Hibernate (ddl-auto=update) antes de Flyway, con los mismos nombres
+-- de restricciones. Las bases que ya existían lo toman como línea base (spring.flyway.baseline-on-migrate) y no lo
+-- ejecutan, así que todo lo que se agregó después va en migraciones posteriores.
+
+CREATE TABLE albumes (
+    id                    BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    descripcion           VARCHAR(1000),
+    fecha_lanzamiento     DATE,
+    imagen                VARCHAR(500),
+    laminas_adquiridas    INTEGER,
+    laminas_faltantes     INTEGER,
+    nombre                VARCHAR(200) NOT NULL,
+    porcentaje_completado FLOAT(53),
+    tipo_laminas          VARCHAR(100),
+    total_laminas         INTEGER,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE laminas (
+    id                 BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    adquirida          BOOLEAN      NOT NULL,
+    cantidad_repetidas INTEGER      NOT NULL,
+    imagen             VARCHAR(500),
+    nombre             VARCHAR(200),
+    numero             INTEGER      NOT NULL,
+    album_id           BIGINT       NOT NULL,
+    PRIMARY KEY (id)
+);
+
+ALTER TABLE laminas ADD CONSTRAINT UKbsyt93t3wrsgyh2o5ggoxtg8q UNIQUE (album_id, numero);
+ALTER TABLE laminas ADD CONSTRAINT FK42t9jwwlxrftjt9y3hqbfdrrx FOREIGN KEY (album_id) REFERENCES albumes;
@@ -0,0 +1,13 @@
+-- Índices parciales para las consultas de faltantes y repetidas de un álbum: solo contienen las filas que
+-- esas consultas devuelven y ya vienen ordenados por número (paginación por cursor y streaming).
+-- CONCURRENTLY no bloquea las escrituras mientras se construyen, por eso Flyway ejecuta esta migración fuera
+-- de una transacción. Si un intento anterior se interrumpió, el índice queda inválido: se descarta y se
+-- vuelve a crear.
+
+DROP INDEX CONCURRENTLY IF EXISTS idx_laminas_faltantes;
+CREATE INDEX CONCURRENTLY idx_laminas_faltantes
+    ON laminas (album_id, numero) WHERE adquirida = false;
+
+DROP INDEX CONCURRENTLY IF EXISTS idx_laminas_repetidas;
+CREATE INDEX CONCURRENTLY idx_laminas_repetidas
+    ON laminas (album_id, numero) WHERE cantidad_repetidas > 0;
@@ -0,0 +1,36 @@
+-- Separar el catálogo del estado de cada coleccionista. albumes y laminas quedan como catálogo compartido
+-- (número, nombre, imagen) y el estado (adquirida, repetidas) pasa a laminas_coleccion, con una fila solo por
+-- lámina que el coleccionista tiene o tuvo: las faltantes no ocupan espacio.
+
+CREATE TABLE colecciones (
+    coleccionista_id BIGINT NOT NULL,
+    album_id         BIGINT NOT NULL REFERENCES albumes (id) ON DELETE CASCADE,
+    version          BIGINT DEFAULT 0 NOT NULL,
+    PRIMARY KEY (coleccionista_id, album_id)
+);
+
+CREATE TABLE laminas_coleccion (
+    coleccionista_id   BIGINT  NOT NULL,
+    lamina_id          BIGINT  NOT NULL REFERENCES laminas (id) ON DELETE CASCADE,
+    adquirida          BOOLEAN DEFAULT false NOT NULL,
+    cantidad_repetidas INTEGER DEFAULT 0 NOT NULL,
+    PRIMARY KEY (coleccionista_id, lamina_id)
+);
+
+-- Quién tiene repetida cada lámina: candidatos para la búsqueda de intercambios
+CREATE INDEX idx_laminas_coleccion_repetidas
+    ON laminas_coleccion (lamina_id, coleccionista_id) WHERE cantidad_repetidas > 0;
+
+-- El estado que ya existía pasa al coleccionista por defecto (0), el de las peticiones sin X-Coleccionista
+INSERT INTO laminas_coleccion (coleccionista_id, lamina_id, adquirida, cantidad_repetidas)
+SELECT 0, id, adquirida, cantidad_repetidas
+FROM laminas
+WHERE adquirida OR cantidad_repetidas > 0;
+
+-- Cada colección empieza en la versión 0 (el esquema de V1 todavía no tiene la versión de los álbumes, que agrega V6)
+INSERT INTO colecciones (coleccionista_id, album_id, version)
+SELECT 0, id, 0
+FROM albumes;
+
+-- Los índices parciales de V2 se eliminan junto con las columnas
+ALTER TABLE laminas DROP COLUMN adquirida, DROP COLUMN cantidad_repetidas;
@@ -0,0 +1,22 @@
+-- Borrar un álbum con una sola sentencia: sus láminas se borran en cascada desde la base de datos (y con ellas su
+-- estado en las colecciones) en lugar de que Hibernate las cargue y elimine una por una.
+-- La clave foránea puede tener el nombre generado por Hibernate (bases anteriores a Flyway) o el de V1,
+-- por eso se busca en el catálogo.
+DO $$
+DECLARE
+    restriccion text;
+BEGIN
+    FOR restriccion IN
+        SELECT conname FROM pg_constraint
+        WHERE conrelid = 'laminas'::regclass AND confrelid = 'albumes'::regclass AND contype = 'f'
+    LOOP
+        EXECUTE format('ALTER TABLE laminas DROP CONSTRAINT %I', restriccion);
+    END LOOP;
+END
+$$;
+
+ALTER TABLE laminas
+    ADD CONSTRAINT fk_laminas_album FOREIGN KEY (album_id) REFERENCES albumes (id) ON DELETE CASCADE;
+
+-- La cascada busca el estado de cada lámina borrada por lamina_id, que no es el primer campo de la clave primaria
+CREATE INDEX idx_laminas_coleccion_lamina ON laminas_coleccion (lamina_id);
@@ -0,0 +1,14 @@
+-- Reemplazo de los índices parciales de V2, que V3 eliminó junto con las columnas adquirida y cantidad_repetidas
+-- de laminas. Un índice parcial no puede abarcar dos tablas: ahora filtran el estado de laminas_coleccion y empiezan
+-- por el coleccionista, así las consultas de un coleccionista leen solo sus filas adquiridas (para descartarlas de
+-- las faltantes) o solo sus repetidas, y no todo su estado ni el de los demás.
+-- idx_laminas_coleccion_repetidas (V3) sigue sirviendo a la búsqueda de intercambios, que va por lámina.
+-- Igual que V2, se crean con CONCURRENTLY fuera de una transacción y se descartan primero si quedaron inválidos.
+
+DROP INDEX CONCURRENTLY IF EXISTS idx_laminas_coleccion_adquiridas;
+CREATE INDEX CONCURRENTLY idx_laminas_coleccion_adquiridas
+    ON laminas_coleccion (coleccionista_id, lamina_id) WHERE adquirida;
+
+DROP INDEX CONCURRENTLY IF EXISTS idx_laminas_coleccion_repetidas_propias;
+CREATE INDEX CONCURRENTLY idx_laminas_coleccion_repetidas_propias
+    ON laminas_coleccion (coleccionista_id, lamina_id) WHERE cantidad_repetidas > 0;
@@ -0,0 +1,25 @@
+-- Lo que se agregó al esquema después del que generaba Hibernate y que las bases anteriores a Flyway (tomadas
+-- como línea base en V1) no tienen: las versiones para las ETag y el bloqueo optimista, y los índices de la
+-- búsqueda de álbumes. Una base que ya tenga alguno de estos objetos (por ejemplo, los índices que creaba
+-- schema.sql) lo conserva.
+
+ALTER TABLE albumes ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE laminas ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+
+-- Búsqueda de álbumes por texto: trigramas sobre nombre y descripción (ILIKE y word_similarity)
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_albumes_nombre_trgm ON albumes USING gin (nombre gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_albumes_descripcion_trgm ON albumes USING gin (descripcion gin_trgm_ops);
+
+-- Filtros de la búsqueda por tipo y rango de fechas de lanzamiento
+CREATE INDEX IF NOT EXISTS idx_albumes_tipo_fecha ON albumes (tipo_laminas, fecha_lanzamiento);
+
+-- La restricción única con el nombre que declara la entidad Lamina en lugar del generado por Hibernate
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_constraint
+               WHERE conrelid = 'laminas'::regclass AND conname = 'ukbsyt93t3wrsgyh2o5ggoxtg8q') THEN
+        ALTER TABLE laminas RENAME CONSTRAINT ukbsyt93t3wrsgyh2o5ggoxtg8q TO uk_laminas_album_numero;
+    END IF;
+END
+$$;
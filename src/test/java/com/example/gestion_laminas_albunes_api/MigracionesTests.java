@@ -0,0 +1,114 @@
+package com.example.gestion_laminas_albunes_api;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/* Migraciones de datos: cada prueba usa una base nueva en el PostgreSQL embebido */
+class MigracionesTests {
+
+    /* Esquema que generaba Hibernate (ddl-auto=update) con las entidades originales, antes de Flyway */
+    private static final String ESQUEMA_HIBERNATE = """
+            create table albumes (id bigint generated by default as identity, descripcion varchar(1000),
+                fecha_lanzamiento date, imagen varchar(500), laminas_adquiridas integer, laminas_faltantes integer,
+                nombre varchar(200) not null, porcentaje_completado float(53), tipo_laminas varchar(100),
+                total_laminas integer, primary key (id));
+            create table laminas (id bigint generated by default as identity, adquirida boolean not null,
+                cantidad_repetidas integer not null, imagen varchar(500), nombre varchar(200),
+                numero integer not null, album_id bigint not null, primary key (id));
+            alter table if exists laminas add constraint UKbsyt93t3wrsgyh2o5ggoxtg8q unique (album_id, numero);
+            alter table if exists laminas add constraint FK42t9jwwlxrftjt9y3hqbfdrrx
+                foreign key (album_id) references albumes;
+            """;
+
+    /*
+     * Una base creada por Hibernate antes de Flyway: la aplicación la toma como
+     * versión 1 (application.properties), ejecuta el resto de las migraciones y
+     * arranca con ddl-auto=validate, así que las entidades coinciden con el esquema
+     */
+    @Test
+    void baseAnteriorAFlywayMigraYValida() {
+        DriverManagerDataSource dataSource = baseNueva("anterior_a_flyway");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute(ESQUEMA_HIBERNATE);
+        jdbc.update("INSERT INTO albumes (nombre, total_laminas) VALUES ('Legado', 2)");
+        jdbc.update("""
+                INSERT INTO laminas (album_id, numero, nombre, adquirida, cantidad_repetidas)
+                SELECT id, 1, 'Uno', true, 2 FROM albumes""");
+
+        try (ConfigurableApplicationContext contexto = new SpringApplicationBuilder(
+                GestionLaminasAlbunesApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + PruebaIntegracion.POSTGRES.getJdbcUrl("postgres",
+                        "anterior_a_flyway"),
+                        "--spring.datasource.username=postgres", "--spring.datasource.password=postgres",
+                        "--spring.devtools.restart.enabled=false")) {
+            assertThat(contexto.isRunning()).isTrue();
+        }
+
+        assertThat(jdbc.queryForList("SELECT version, type FROM flyway_schema_history ORDER BY installed_rank"))
+                .first().isEqualTo(Map.of("version", "1", "type", "BASELINE"));
+        assertThat(flyway(dataSource, "latest").info().pending()).isEmpty();
+        assertThat(jdbc.queryForList("""
+                SELECT lc.coleccionista_id, lc.adquirida, lc.cantidad_repetidas, l.version
+                FROM laminas_coleccion lc JOIN laminas l ON l.id = lc.lamina_id"""))
+                .containsExactly(Map.of("coleccionista_id", 0L, "adquirida", true, "cantidad_repetidas", 2,
+                        "version", 0L));
+        assertThat(jdbc.queryForList("SELECT conname FROM pg_constraint WHERE conrelid = 'laminas'::regclass "
+                + "AND contype = 'u'", String.class)).containsExactly("uk_laminas_album_numero");
+    }
+
+    /* V3 pasa el estado de las láminas al coleccionista por defecto (0), con una colección por álbum */
+    @Test
+    void v3PasaElEstadoAlColeccionistaPorDefecto() {
+        DriverManagerDataSource dataSource = baseNueva("migracion_v3");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        flyway(dataSource, "2").migrate();
+        jdbc.update("INSERT INTO albumes (id, nombre, total_laminas) VALUES (1, 'Legado', 3)");
+        jdbc.update("""
+                INSERT INTO laminas (album_id, numero, nombre, adquirida, cantidad_repetidas) VALUES
+                (1, 1, 'Uno', true, 2), (1, 2, 'Dos', false, 0), (1, 3, 'Tres', false, 1)""");
+
+        flyway(dataSource, "latest").migrate();
+
+        assertThat(jdbc.queryForList("""
+                SELECT l.numero, lc.adquirida, lc.cantidad_repetidas FROM laminas_coleccion lc
+                JOIN laminas l ON l.id = lc.lamina_id WHERE lc.coleccionista_id = 0 ORDER BY l.numero"""))
+                .containsExactly(
+                        Map.of("numero", 1, "adquirida", true, "cantidad_repetidas", 2),
+                        Map.of("numero", 3, "adquirida", false, "cantidad_repetidas", 1));
+        assertThat(jdbc.queryForList("SELECT coleccionista_id, album_id, version FROM colecciones"))
+                .containsExactly(Map.of("coleccionista_id", 0L, "album_id", 1L, "version", 0L));
+        // El catálogo queda sin estado y conserva todas las láminas
+        assertThat(jdbc.queryForList("SELECT numero FROM laminas ORDER BY numero", Integer.class))
+                .containsExactly(1, 2, 3);
+        assertThat(jdbc.queryForList("""
+                SELECT column_name FROM information_schema.columns
+                WHERE table_name = 'laminas' AND column_name IN ('adquirida', 'cantidad_repetidas')"""))
+                .isEmpty();
+    }
+
+    private static DriverManagerDataSource baseNueva(String nombre) {
+        new JdbcTemplate(PruebaIntegracion.POSTGRES.getPostgresDatabase()).execute("CREATE DATABASE " + nombre);
+        return new DriverManagerDataSource(PruebaIntegracion.POSTGRES.getJdbcUrl("postgres", nombre), "postgres",
+                "postgres");
+    }
+
+    /* Misma configuración que la aplicación (application.properties), hasta la versión dada */
+    private static Flyway flyway(DriverManagerDataSource dataSource, String version) {
+        return Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration")
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .target(version)
+                .load();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.gestion_laminas_albunes_api;
+
+import com.example.gestion_laminas_albunes_api.request.AlbumRequest;
+import com.example.gestion_laminas_albunes_api.service.AlbumService;
+import com.example.gestion_laminas_albunes_api.service.LaminaService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/*
+ * Base de las pruebas de integración: un PostgreSQL embebido (zonky) por JVM,
+ * migrado por Flyway al levantar el contexto. Cada prueba crea sus propios
+ * álbumes y usa coleccionistas distintos, así no depende del orden ni de los
+ * datos de las demás.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public abstract class PruebaIntegracion {
+
+    public static final EmbeddedPostgres POSTGRES = iniciarPostgres();
+
+    private static final AtomicLong COLECCIONISTAS = new AtomicLong(1000);
+
+    @Autowired
+    protected AlbumService albumService;
+
+    @Autowired
+    protected LaminaService laminaService;
+
+    @Autowired
+    protected JdbcTemplate jdbc;
+
+    @DynamicPropertySource
+    static void baseDeDatos(DynamicPropertyRegistry registro) {
+        registro.add("spring.datasource.url", () -> POSTGRES.getJdbcUrl("postgres", "postgres"));
+        registro.add("spring.datasource.username", () -> "postgres");
+        registro.add("spring.datasource.password", () -> "postgres");
+        // devtools está en el classpath de test: sin reinicios en otro classloader
+        registro.add("spring.devtools.restart.enabled", () -> "false");
+    }
+
+    private static EmbeddedPostgres iniciarPostgres() {
+        try {
+            return EmbeddedPostgres.builder().start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /* Un coleccionista que ninguna otra prueba usa */
+    protected static Long nuevoColeccionista() {
+        return COLECCIONISTAS.incrementAndGet();
+    }
+
+    /* Crear un álbum con las láminas 1..total en el catálogo y devolver su id */
+    protected Long crearAlbum(int total) {
+        Long albumId = crearAlbumVacio(total);
+        laminaService.crearMultiples(albumId, IntStream.rangeClosed(1, total).boxed().toList());
+        return albumId;
+    }
+
+    /* Crear un álbum sin láminas en el catálogo y devolver su id */
+    protected Long crearAlbumVacio(int total) {
+        AlbumRequest request = new AlbumRequest();
+        request.setNombre("Prueba " + System.nanoTime());
+        request.setTotalLaminas(total);
+        return albumService.crear(request).getId();
+    }
+
+    /* Repetidas guardadas en la base (sin pasar por cachés ni buffers); 0 si la lámina no tiene estado */
+    protected int repetidasGuardadas(Long albumId, Long coleccionistaId, Integer numero) {
+        List<Integer> cantidades = jdbc.queryForList("""
+                SELECT lc.cantidad_repetidas FROM laminas_coleccion lc
+                JOIN laminas l ON l.id = lc.lamina_id
+                WHERE l.album_id = ? AND l.numero = ? AND lc.coleccionista_id = ?""",
+                Integer.class, albumId, numero, coleccionistaId);
+        return cantidades.isEmpty() ? 0 : cantidades.get(0);
+    }
+}
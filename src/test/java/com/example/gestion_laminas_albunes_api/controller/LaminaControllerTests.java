@@ -0,0 +1,62 @@
+package com.example.gestion_laminas_albunes_api.controller;
+
+import com.example.gestion_laminas_albunes_api.PruebaIntegracion;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+
+/* Consultas condicionales: la ETag sigue la versión del álbum y de la colección de quien consulta */
+class LaminaControllerTests extends PruebaIntegracion {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void respondeNoModificadoHastaQueCambiaLaColeccion() throws Exception {
+        Long albumId = crearAlbum(3);
+        Long coleccionistaId = nuevoColeccionista();
+        String url = "/api/laminas/album/" + albumId;
+
+        MockHttpServletResponse primera = consultar(url, coleccionistaId, null);
+        String etag = primera.getHeader(HttpHeaders.ETAG);
+        assertThat(primera.getStatus()).isEqualTo(200);
+        assertThat(etag).startsWith("W/\"");
+
+        MockHttpServletResponse igual = consultar(url, coleccionistaId, etag);
+        assertThat(igual.getStatus()).isEqualTo(304);
+        assertThat(igual.getContentAsString()).isEmpty();
+        assertThat(igual.getHeaders(HttpHeaders.VARY)).contains(HttpHeaders.ACCEPT, Coleccionista.CABECERA);
+
+        // La ETag es por coleccionista: la de otro no sirve
+        assertThat(consultar(url, nuevoColeccionista(), etag).getStatus()).isEqualTo(200);
+
+        mockMvc.perform(patch(url + "/adquirir/1").header(Coleccionista.CABECERA, coleccionistaId));
+        MockHttpServletResponse cambiada = consultar(url, coleccionistaId, etag);
+        assertThat(cambiada.getStatus()).isEqualTo(200);
+        assertThat(cambiada.getHeader(HttpHeaders.ETAG)).isNotEqualTo(etag);
+        assertThat(consultar(url + "/faltantes", coleccionistaId, cambiada.getHeader(HttpHeaders.ETAG)).getStatus())
+                .isEqualTo(304);
+    }
+
+    @Test
+    void albumInexistenteNoUsaETag() throws Exception {
+        MockHttpServletResponse respuesta = consultar("/api/laminas/album/-1", nuevoColeccionista(), "W/\"x\"");
+
+        assertThat(respuesta.getStatus()).isEqualTo(404);
+        assertThat(respuesta.getHeader(HttpHeaders.ETAG)).isNull();
+    }
+
+    private MockHttpServletResponse consultar(String url, Long coleccionistaId, String etag) throws Exception {
+        var peticion = get(url).header(Coleccionista.CABECERA, coleccionistaId);
+        if (etag != null) {
+            peticion.header(HttpHeaders.IF_NONE_MATCH, etag);
+        }
+        return mockMvc.perform(peticion).andReturn().getResponse();
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.gestion_laminas_albunes_api.controller;
+
+import com.example.gestion_laminas_albunes_api.PruebaIntegracion;
+import com.example.gestion_laminas_albunes_api.request.LaminaRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/*
+ * Listados por columnas (?formato=columnas): nombre, imagen y adquirida se
+ * omiten solo cuando no aportan datos; la misma respuesta se puede pedir en CBOR
+ * y lleva Vary porque la ETag no distingue el formato.
+ */
+class LaminasColumnasControllerTests extends PruebaIntegracion {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void nombreEImagenSeOmitenSoloSinDatos() throws Exception {
+        Long albumId = crearAlbum(3);
+        Long coleccionistaId = nuevoColeccionista();
+        String url = "/api/laminas/album/" + albumId;
+
+        JsonNode columnas = json(consultar(url, coleccionistaId, MediaType.APPLICATION_JSON)).get("datos");
+        assertThat(columnas.get("numero").toString()).isEqualTo("[1,2,3]");
+        assertThat(columnas.get("adquirida").toString()).isEqualTo("[false,false,false]");
+        assertThat(columnas.get("cantidadRepetidas").toString()).isEqualTo("[0,0,0]");
+        assertThat(columnas.has("nombre")).isFalse();
+        assertThat(columnas.has("imagen")).isFalse();
+
+        // Un solo nombre propio trae la columna completa; la imagen sigue sin datos
+        cambiar(albumId, coleccionistaId, 2, "Figura", null);
+        columnas = json(consultar(url, coleccionistaId, MediaType.APPLICATION_JSON)).get("datos");
+        assertThat(columnas.get("nombre").toString()).isEqualTo("[null,\"Figura\",null]");
+        assertThat(columnas.has("imagen")).isFalse();
+
+        cambiar(albumId, coleccionistaId, 3, null, "https://img/3.png");
+        columnas = json(consultar(url + "/faltantes", coleccionistaId, MediaType.APPLICATION_JSON));
+        assertThat(columnas.get("nombre").toString()).isEqualTo("[null,\"Figura\",null]");
+        assertThat(columnas.get("imagen").toString()).isEqualTo("[null,null,\"https://img/3.png\"]");
+        assertThat(columnas.has("adquirida")).isTrue();
+    }
+
+    /* Las repetidas nunca llevan adquirida ni imagen; el nombre, solo si alguna tiene uno propio */
+    @Test
+    void repetidasOmitenAdquirida() throws Exception {
+        Long albumId = crearAlbum(3);
+        Long coleccionistaId = nuevoColeccionista();
+        cambiar(albumId, coleccionistaId, 3, null, "https://img/3.png");
+        laminaService.agregarRepetida(albumId, coleccionistaId, 1);
+        laminaService.agregarRepetida(albumId, coleccionistaId, 3);
+        laminaService.agregarRepetida(albumId, coleccionistaId, 3);
+        String url = "/api/laminas/album/" + albumId + "/repetidas";
+
+        JsonNode columnas = json(consultar(url, coleccionistaId, MediaType.APPLICATION_JSON));
+        assertThat(columnas.get("numero").toString()).isEqualTo("[1,3]");
+        assertThat(columnas.get("cantidadRepetidas").toString()).isEqualTo("[1,2]");
+        assertThat(columnas.has("adquirida")).isFalse();
+        assertThat(columnas.has("imagen")).isFalse();
+        assertThat(columnas.has("nombre")).isFalse();
+
+        cambiar(albumId, coleccionistaId, 1, "Escudo", null);
+        columnas = json(consultar(url, coleccionistaId, MediaType.APPLICATION_JSON));
+        assertThat(columnas.get("nombre").toString()).isEqualTo("[\"Escudo\",null]");
+        assertThat(columnas.has("adquirida")).isFalse();
+    }
+
+    @Test
+    void columnasEnCbor() throws Exception {
+        Long albumId = crearAlbum(3);
+        Long coleccionistaId = nuevoColeccionista();
+        cambiar(albumId, coleccionistaId, 2, "Figura", null);
+        MediaType cbor = MediaType.parseMediaType("application/cbor");
+
+        MockHttpServletResponse respuesta = consultar("/api/laminas/album/" + albumId, coleccionistaId, cbor);
+
+        assertThat(MediaType.parseMediaType(respuesta.getContentType()).isCompatibleWith(cbor)).isTrue();
+        JsonNode columnas = new CBORMapper().readTree(respuesta.getContentAsByteArray()).get("datos");
+        assertThat(columnas.get("numero").toString()).isEqualTo("[1,2,3]");
+        assertThat(columnas.get("nombre").toString()).isEqualTo("[null,\"Figura\",null]");
+        assertThat(columnas.has("imagen")).isFalse();
+    }
+
+    /* JSON, CBOR y los tres listados comparten ETag: todas las respuestas varían por formato y coleccionista */
+    @Test
+    void respuestasVarianPorFormatoYColeccionista() throws Exception {
+        Long albumId = crearAlbum(2);
+        Long coleccionistaId = nuevoColeccionista();
+        laminaService.agregarRepetida(albumId, coleccionistaId, 1);
+        String url = "/api/laminas/album/" + albumId;
+
+        for (String ruta : new String[] { url, url + "/faltantes", url + "/repetidas", url + "?tamano=1" }) {
+            for (MediaType formato : new MediaType[] { MediaType.APPLICATION_JSON,
+                    MediaType.parseMediaType("application/cbor") }) {
+                MockHttpServletResponse respuesta = consultar(ruta, coleccionistaId, formato);
+                assertThat(respuesta.getStatus()).as("%s %s", ruta, formato).isEqualTo(200);
+                assertThat(respuesta.getHeaders(HttpHeaders.VARY)).as("%s %s", ruta, formato)
+                        .contains(HttpHeaders.ACCEPT, Coleccionista.CABECERA);
+            }
+        }
+    }
+
+    private void cambiar(Long albumId, Long coleccionistaId, int numero, String nombre, String imagen) {
+        Long laminaId = jdbc.queryForObject("SELECT id FROM laminas WHERE album_id = ? AND numero = ?", Long.class,
+                albumId, numero);
+        LaminaRequest request = new LaminaRequest();
+        request.setNombre(nombre);
+        request.setImagen(imagen);
+        laminaService.actualizar(laminaId, coleccionistaId, request);
+    }
+
+    private MockHttpServletResponse consultar(String url, Long coleccionistaId, MediaType formato) throws Exception {
+        return mockMvc.perform(get(url).queryParam("formato", "columnas")
+                .header(Coleccionista.CABECERA, coleccionistaId).accept(formato)).andReturn().getResponse();
+    }
+
+    private JsonNode json(MockHttpServletResponse respuesta) throws Exception {
+        assertThat(respuesta.getStatus()).isEqualTo(200);
+        return objectMapper.readTree(respuesta.getContentAsString());
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.gestion_laminas_albunes_api.jdbc;
+
+import com.example.gestion_laminas_albunes_api.PruebaIntegracion;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/*
+ * Contabilidad de permisos de la compuerta: cada permiso vuelve una sola vez,
+ * también si el pool falla, y quien espera demasiado recibe un 503.
+ */
+class CompuertaConexionesTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private PoolConFallos pool;
+
+    @BeforeEach
+    void crearPool() {
+        pool = new PoolConFallos();
+    }
+
+    @Test
+    void cerrarDosVecesDevuelveUnSoloPermiso() throws SQLException {
+        CompuertaConexiones compuerta = compuerta(2, Duration.ofMillis(50));
+
+        Connection primera = compuerta.getConnection();
+        Connection segunda = compuerta.getConnection();
+        assertThat(activos()).isEqualTo(2);
+
+        primera.close();
+        primera.close();
+        assertThat(activos()).isEqualTo(1);
+        assertThat(primera.isClosed()).isTrue();
+
+        /* Si el segundo close hubiera liberado otro permiso cabrían tres conexiones */
+        Connection tercera = compuerta.getConnection();
+        assertThatThrownBy(compuerta::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+
+        segunda.close();
+        tercera.close();
+        assertThat(activos()).isZero();
+    }
+
+    @Test
+    void fallaDelPoolDevuelveElPermiso() throws SQLException {
+        CompuertaConexiones compuerta = compuerta(1, Duration.ofMillis(50));
+
+        pool.fallar = true;
+        assertThatThrownBy(compuerta::getConnection).isInstanceOf(SQLException.class)
+                .isNotInstanceOf(SQLTransientConnectionException.class)
+                .hasMessage("pool caído");
+        assertThat(activos()).isZero();
+
+        pool.fallar = false;
+        try (Connection conexion = compuerta.getConnection()) {
+            assertThat(conexion.isValid(1)).isTrue();
+        }
+        assertThat(activos()).isZero();
+    }
+
+    @Test
+    void esperaAgotadaRechazaLaConexion() throws SQLException {
+        CompuertaConexiones compuerta = compuerta(1, Duration.ofMillis(50));
+
+        try (Connection ocupada = compuerta.getConnection()) {
+            assertThatThrownBy(compuerta::getConnection).isInstanceOf(SQLTransientConnectionException.class)
+                    .hasMessageContaining("50 ms");
+        }
+        assertThat(registry.get("jdbc.connections.gate.rejected").counter().count()).isEqualTo(1);
+        assertThat(activos()).isZero();
+    }
+
+    /* El rechazo llega envuelto por Spring tanto al abrir una transacción como en JdbcTemplate */
+    @Test
+    void esperaAgotadaRespondeServicioNoDisponible() throws Exception {
+        CompuertaConexiones compuerta = compuerta(1, Duration.ofMillis(50));
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new ControladorConsultas(compuerta))
+                .setControllerAdvice(new ConexionesAgotadasHandler())
+                .build();
+
+        try (Connection ocupada = compuerta.getConnection()) {
+            mockMvc.perform(get("/transaccion"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+            mockMvc.perform(get("/consulta"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+        }
+
+        mockMvc.perform(get("/consulta")).andExpect(status().isOk());
+        assertThat(activos()).isZero();
+    }
+
+    private CompuertaConexiones compuerta(int permisos, Duration esperaMaxima) {
+        CompuertaConexiones compuerta = new CompuertaConexiones(pool, permisos, esperaMaxima);
+        compuerta.bindTo(registry);
+        return compuerta;
+    }
+
+    private double activos() {
+        return registry.get("jdbc.connections.gate.active").gauge().value();
+    }
+
+    /* Conexiones reales del PostgreSQL embebido, salvo cuando se le pide fallar */
+    private static class PoolConFallos extends DelegatingDataSource {
+
+        private volatile boolean fallar;
+
+        PoolConFallos() {
+            super(PruebaIntegracion.POSTGRES.getPostgresDatabase());
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (fallar) {
+                throw new SQLException("pool caído");
+            }
+            return super.getConnection();
+        }
+    }
+
+    @RestController
+    private static class ControladorConsultas {
+
+        private final DataSourceTransactionManager transacciones;
+        private final JdbcTemplate jdbc;
+
+        ControladorConsultas(CompuertaConexiones compuerta) {
+            this.transacciones = new DataSourceTransactionManager(compuerta);
+            this.jdbc = new JdbcTemplate(compuerta);
+        }
+
+        @GetMapping("/transaccion")
+        void transaccion() {
+            transacciones.commit(transacciones.getTransaction(new DefaultTransactionDefinition()));
+        }
+
+        @GetMapping("/consulta")
+        Integer consulta() {
+            return jdbc.queryForObject("SELECT 1", Integer.class);
+        }
+    }
+}
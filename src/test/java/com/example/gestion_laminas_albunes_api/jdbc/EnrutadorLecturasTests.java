@@ -0,0 +1,122 @@
+package com.example.gestion_laminas_albunes_api.jdbc;
+
+import com.example.gestion_laminas_albunes_api.PruebaIntegracion;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * Enrutamiento de las conexiones de solo lectura. La "réplica" es otra base del
+ * PostgreSQL embebido, así current_database() dice a dónde fue cada conexión.
+ */
+class EnrutadorLecturasTests {
+
+    private static final String PRIMARIA = "postgres";
+    private static final String REPLICA = "replica_enrutador";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @BeforeAll
+    static void crearReplica() {
+        new JdbcTemplate(PruebaIntegracion.POSTGRES.getPostgresDatabase()).execute("CREATE DATABASE " + REPLICA);
+    }
+
+    @AfterEach
+    void limpiarHilo() {
+        EnrutadorLecturas.asignarColeccionista(null);
+        EnrutadorLecturas.lecturasEnPrimaria(false);
+    }
+
+    @Test
+    void lecturasVanALaReplicaYEscriturasALaPrimaria() throws SQLException {
+        try (EnrutadorLecturas enrutador = enrutador(Duration.ofMinutes(1))) {
+            assertThat(base(enrutador, true)).isEqualTo(REPLICA);
+            assertThat(base(enrutador, false)).isEqualTo(PRIMARIA);
+            assertThat(enrutadas("replica")).isEqualTo(1);
+            assertThat(enrutadas("primaria")).isZero();
+        }
+    }
+
+    /* Después de escribir, las lecturas del mismo coleccionista siguen en la primaria; las de otros, no */
+    @Test
+    void coleccionistaQueEscribioLeeDeLaPrimaria() throws SQLException {
+        try (EnrutadorLecturas enrutador = enrutador(Duration.ofMinutes(1))) {
+            enrutador.escrituraDe(7L);
+
+            EnrutadorLecturas.asignarColeccionista(7L);
+            assertThat(base(enrutador, true)).isEqualTo(PRIMARIA);
+            assertThat(base(enrutador, true)).isEqualTo(PRIMARIA);
+            EnrutadorLecturas.asignarColeccionista(8L);
+            assertThat(base(enrutador, true)).isEqualTo(REPLICA);
+            EnrutadorLecturas.asignarColeccionista(null);
+            assertThat(base(enrutador, true)).isEqualTo(REPLICA);
+
+            assertThat(enrutadas("primaria")).isEqualTo(2);
+            assertThat(enrutadas("replica")).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void alVencerLaVentanaVuelveALaReplica() throws Exception {
+        try (EnrutadorLecturas enrutador = enrutador(Duration.ofMillis(200))) {
+            EnrutadorLecturas.asignarColeccionista(7L);
+            enrutador.escrituraDe(7L);
+            assertThat(base(enrutador, true)).isEqualTo(PRIMARIA);
+
+            Thread.sleep(400);
+
+            assertThat(base(enrutador, true)).isEqualTo(REPLICA);
+        }
+    }
+
+    /* Una lectura que acaba de escribir por su cuenta (repetidas diferidas) va a la primaria hasta que termina */
+    @Test
+    void lecturasEnPrimariaDelHilo() throws SQLException {
+        try (EnrutadorLecturas enrutador = enrutador(Duration.ofMinutes(1))) {
+            EnrutadorLecturas.lecturasEnPrimaria(true);
+            assertThat(base(enrutador, true)).isEqualTo(PRIMARIA);
+
+            EnrutadorLecturas.lecturasEnPrimaria(false);
+            assertThat(base(enrutador, true)).isEqualTo(REPLICA);
+        }
+    }
+
+    private EnrutadorLecturas enrutador(Duration ventana) {
+        HikariDataSource replica = new HikariDataSource();
+        replica.setJdbcUrl(PruebaIntegracion.POSTGRES.getJdbcUrl("postgres", REPLICA));
+        replica.setUsername("postgres");
+        replica.setPassword("postgres");
+        replica.setMaximumPoolSize(2);
+        EnrutadorLecturas enrutador = new EnrutadorLecturas(PruebaIntegracion.POSTGRES.getPostgresDatabase(),
+                replica, ventana);
+        enrutador.bindTo(registry);
+        return enrutador;
+    }
+
+    /* Base a la que llegó una conexión pedida como de solo lectura o no */
+    private static String base(EnrutadorLecturas enrutador, boolean soloLectura) throws SQLException {
+        try (Connection conexion = enrutador.getConnection()) {
+            conexion.setReadOnly(soloLectura);
+            try (Statement sentencia = conexion.createStatement();
+                    ResultSet resultado = sentencia.executeQuery("SELECT current_database()")) {
+                resultado.next();
+                return resultado.getString(1);
+            }
+        }
+    }
+
+    private double enrutadas(String destino) {
+        return registry.get("jdbc.connections.read.routed").tag("destino", destino).counter().count();
+    }
+}
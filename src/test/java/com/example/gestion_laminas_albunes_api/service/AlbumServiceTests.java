@@ -0,0 +1,134 @@
+package com.example.gestion_laminas_albunes_api.service;
+
+import com.example.gestion_laminas_albunes_api.PruebaIntegracion;
+import com.example.gestion_laminas_albunes_api.request.AlbumRequest;
+import com.example.gestion_laminas_albunes_api.response.AlbumResumenResponse;
+import com.example.gestion_laminas_albunes_api.response.PaginaAlbumes;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AlbumServiceTests extends PruebaIntegracion {
+
+    /* Eliminar un álbum borra en cascada su catálogo y las colecciones de todos los coleccionistas */
+    @Test
+    void eliminarBorraLaminasYColeccionesEnCascada() {
+        Long albumId = crearAlbum(3);
+        Long otroAlbumId = crearAlbum(2);
+        Long coleccionistaId = nuevoColeccionista();
+        for (Long albumConEstado : new Long[] { albumId, otroAlbumId }) {
+            laminaService.marcarAdquirida(albumConEstado, coleccionistaId, 1);
+            laminaService.agregarRepetida(albumConEstado, nuevoColeccionista(), 2);
+        }
+
+        Long[] laminas = jdbc.queryForList("SELECT id FROM laminas WHERE album_id = ?", Long.class, albumId)
+                .toArray(new Long[0]);
+        String estados = "SELECT count(*) FROM laminas_coleccion WHERE lamina_id = ANY (?)";
+        assertThat(filas(estados, (Object) laminas)).isEqualTo(2);
+
+        assertThat(albumService.eliminar(albumId)).isTrue();
+
+        assertThat(albumService.existe(albumId)).isFalse();
+        assertThat(laminaService.obtenerPorAlbum(albumId, coleccionistaId)).isEmpty();
+        assertThat(filas("SELECT count(*) FROM laminas WHERE album_id = ?", albumId)).isZero();
+        assertThat(filas(estados, (Object) laminas)).isZero();
+        assertThat(filas("SELECT count(*) FROM colecciones WHERE album_id = ?", albumId)).isZero();
+        // El otro álbum no se toca
+        assertThat(filas("SELECT count(*) FROM laminas WHERE album_id = ?", otroAlbumId)).isEqualTo(2);
+        assertThat(laminaService.consultarNumero(otroAlbumId, coleccionistaId, 1).isAdquirida()).isTrue();
+        assertThat(albumService.eliminar(albumId)).isFalse();
+    }
+
+    /* Los datos del álbum se leen del caché mientras su versión no cambie */
+    @Test
+    void datosDelAlbumEnCacheHastaQueCambiaLaVersion() {
+        Long albumId = crearAlbum(4);
+        Long coleccionistaId = nuevoColeccionista();
+        String nombre = albumService.obtenerId(albumId).nombre();
+
+        // Sin cambiar la versión, el caché sigue respondiendo con los datos anteriores
+        jdbc.update("UPDATE albumes SET nombre = 'Renombrado', total_laminas = 8 WHERE id = ?", albumId);
+        assertThat(albumService.obtenerId(albumId).nombre()).isEqualTo(nombre);
+        assertThat(albumService.obtenerDetalle(albumId, coleccionistaId).getNombre()).isEqualTo(nombre);
+        assertThat(albumService.estadisticasAlbum(albumId, coleccionistaId).getLaminasFaltantes()).isEqualTo(4);
+
+        jdbc.update("UPDATE albumes SET version = version + 1 WHERE id = ?", albumId);
+        assertThat(albumService.obtenerId(albumId).nombre()).isEqualTo("Renombrado");
+        assertThat(albumService.obtenerDetalle(albumId, coleccionistaId).getNombre()).isEqualTo("Renombrado");
+        assertThat(albumService.estadisticasAlbum(albumId, coleccionistaId).getLaminasFaltantes()).isEqualTo(8);
+
+        assertThat(albumService.eliminar(albumId)).isTrue();
+        assertThat(albumService.obtenerId(albumId)).isNull();
+        assertThat(albumService.obtenerDetalle(albumId, coleccionistaId)).isNull();
+    }
+
+    /*
+     * Búsqueda por texto paginada con el cursor "relevancia_id": con relevancias
+     * empatadas (también fraccionarias, redondeadas en la consulta) cada álbum
+     * sale una sola vez y en el mismo orden que en una sola página
+     */
+    @Test
+    void busquedaPorTextoPaginaConRelevanciasEmpatadas() {
+        String palabra = "colibri" + Long.toString(System.nanoTime(), 36).replaceAll("[0-9]", "");
+        String parecida = palabra.substring(0, palabra.length() - 1) + "x";
+        List<Long> creados = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            creados.add(crearAlbum(palabra, null));
+            creados.add(crearAlbum("Sin coincidencia " + i, palabra));
+            creados.add(crearAlbum(parecida, null));
+        }
+
+        List<AlbumResumenResponse> completa = albumService.buscar(palabra, null, null, null, null, 100).getDatos();
+        assertThat(completa).extracting(AlbumResumenResponse::getId).containsExactlyInAnyOrderElementsOf(creados);
+        assertThat(completa).extracting(AlbumResumenResponse::getRelevancia).map(BigDecimal::stripTrailingZeros)
+                .contains(BigDecimal.ONE, new BigDecimal("0.5"))
+                .anyMatch(relevancia -> relevancia.scale() == 4);
+        assertThat(completa).isSortedAccordingTo(Comparator.comparing(AlbumResumenResponse::getRelevancia)
+                .reversed().thenComparing(AlbumResumenResponse::getId));
+
+        for (int tamano : new int[] { 1, 2, 5 }) {
+            List<Long> recorridos = new ArrayList<>();
+            String cursor = null;
+            do {
+                PaginaAlbumes pagina = albumService.buscar(palabra, null, null, null, cursor, tamano);
+                assertThat(pagina.getDatos()).hasSizeLessThanOrEqualTo(tamano);
+                pagina.getDatos().forEach(album -> recorridos.add(album.getId()));
+                // Un cursor que repite álbumes no termina nunca: se corta al pasar del total
+                assertThat(recorridos).as("tamaño %d", tamano).hasSizeLessThanOrEqualTo(creados.size());
+                cursor = pagina.getSiguienteCursor();
+            } while (cursor != null);
+            assertThat(recorridos).as("tamaño %d", tamano)
+                    .containsExactlyElementsOf(completa.stream().map(AlbumResumenResponse::getId).toList());
+        }
+    }
+
+    @Test
+    void cursorMalFormadoSeRechaza() {
+        for (String cursor : new String[] { "abc", "0.5", "0.5_", "_12", "0.5_x", "uno_12", "" }) {
+            assertThatThrownBy(() -> albumService.buscar("album", null, null, null, cursor, 10)).as(cursor)
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+        for (String cursor : new String[] { "0.5_12", "x", "" }) {
+            assertThatThrownBy(() -> albumService.buscar(null, null, null, null, cursor, 10)).as(cursor)
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    private Long crearAlbum(String nombre, String descripcion) {
+        AlbumRequest request = new AlbumRequest();
+        request.setNombre(nombre);
+        request.setDescripcion(descripcion);
+        request.setTotalLaminas(10);
+        return albumService.crear(request).getId();
+    }
+
+    private long filas(String sql, Object... parametros) {
+        return jdbc.queryForObject(sql, Long.class, parametros);
+    }
+}
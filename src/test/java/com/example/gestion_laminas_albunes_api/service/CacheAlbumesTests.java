@@ -0,0 +1,86 @@
+package com.example.gestion_laminas_albunes_api.service;
+
+import com.example.gestion_laminas_albunes_api.PruebaIntegracion;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * La invalidación de las entradas de una colección espera al commit de la
+ * transacción que la modifica; las del álbum completo vencen por su versión.
+ */
+class CacheAlbumesTests extends PruebaIntegracion {
+
+    @Autowired
+    private CompletitudService completitudService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void invalidaDespuesDelCommit() {
+        Long albumId = crearAlbum(3);
+        Long coleccionistaId = nuevoColeccionista();
+        ClaveColeccion clave = new ClaveColeccion(albumId, coleccionistaId);
+        assertThat(completitudService.obtener(albumId, coleccionistaId).faltantesBits().cardinality()).isEqualTo(3);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(estado -> {
+            laminaService.marcarAdquirida(albumId, coleccionistaId, 1);
+            // Hasta el commit, otra lectura no debe volver a guardar el estado sin confirmar
+            assertThat(completitud().get(clave)).isNotNull();
+        });
+
+        assertThat(completitud().get(clave)).isNull();
+        assertThat(completitudService.obtener(albumId, coleccionistaId).faltantesBits().cardinality()).isEqualTo(2);
+    }
+
+    @Test
+    void conservaLaEntradaSiSeRevierte() {
+        Long albumId = crearAlbum(3);
+        Long coleccionistaId = nuevoColeccionista();
+        ClaveColeccion clave = new ClaveColeccion(albumId, coleccionistaId);
+        completitudService.obtener(albumId, coleccionistaId);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(estado -> {
+            laminaService.marcarAdquirida(albumId, coleccionistaId, 1);
+            estado.setRollbackOnly();
+        });
+
+        assertThat(completitud().get(clave)).isNotNull();
+        assertThat(completitudService.obtener(albumId, coleccionistaId).faltantesBits().cardinality()).isEqualTo(3);
+    }
+
+    /* Un cambio del catálogo no recorre el caché: la versión del álbum deja vencidas todas sus colecciones */
+    @Test
+    void cambioDelCatalogoVenceLasColeccionesPorVersion() {
+        Long albumId = crearAlbumVacio(4);
+        laminaService.crearMultiples(albumId, List.of(1, 2, 3));
+        List<Long> coleccionistas = List.of(nuevoColeccionista(), nuevoColeccionista());
+        for (Long coleccionistaId : coleccionistas) {
+            assertThat(completitudService.obtener(albumId, coleccionistaId).faltantesBits().cardinality())
+                    .isEqualTo(3);
+        }
+
+        laminaService.crearMultiples(albumId, List.of(4));
+
+        for (Long coleccionistaId : coleccionistas) {
+            assertThat(completitud().get(new ClaveColeccion(albumId, coleccionistaId))).isNotNull();
+            assertThat(completitudService.obtener(albumId, coleccionistaId).faltantesBits().cardinality())
+                    .isEqualTo(4);
+        }
+    }
+
+    private Cache completitud() {
+        return cacheManager.getCache(CacheAlbumes.COMPLETITUD);
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.gestion_laminas_albunes_api.service;
+
+import com.example.gestion_laminas_albunes_api.PruebaIntegracion;
+import com.example.gestion_laminas_albunes_api.controller.Coleccionista;
+import com.example.gestion_laminas_albunes_api.response.CambioAlbumResponse;
+import com.example.gestion_laminas_albunes_api.response.TipoCambioAlbum;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.UnsupportedEncodingException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/*
+ * Stream de cambios de un álbum, de punta a punta: el suscriptor se conecta por
+ * GET /api/albumes/{id}/eventos y los eventos se leen de la respuesta a medida
+ * que se envían. Como cada suscriptor recibe sus eventos en orden, un cambio
+ * posterior confirmado marca hasta dónde esperar antes de afirmar que algo no llegó.
+ */
+class DifusorCambiosAlbumTests extends PruebaIntegracion {
+
+    @Autowired
+    private DifusorCambiosAlbum difusorCambios;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void soloSeDifundeLoConfirmado() throws Exception {
+        Long albumId = crearAlbum(3);
+        Long coleccionistaId = nuevoColeccionista();
+        MvcResult stream = suscribir(albumId, coleccionistaId);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(estado -> {
+            laminaService.marcarAdquirida(albumId, coleccionistaId, 1);
+            esperar(Duration.ofMillis(200));
+            assertThat(eventos(stream)).isEmpty();
+        });
+        esperarEvento(stream, 1);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(estado -> {
+            laminaService.marcarAdquirida(albumId, coleccionistaId, 2);
+            estado.setRollbackOnly();
+        });
+        laminaService.marcarAdquirida(albumId, coleccionistaId, 3);
+        esperarEvento(stream, 3);
+
+        assertThat(eventos(stream)).extracting(CambioAlbumResponse::getNumero).containsExactly(1, 3);
+        assertThat(eventos(stream)).allSatisfy(cambio -> {
+            assertThat(cambio.getTipo()).isEqualTo(TipoCambioAlbum.LAMINA_ADQUIRIDA);
+            assertThat(cambio.getAdquirida()).isTrue();
+        });
+    }
+
+    /* Los cambios pendientes de la misma lámina se combinan: llega solo el último estado */
+    @Test
+    void cambiosDeLaMismaLaminaSeCombinan() throws Exception {
+        Long albumId = crearAlbum(3);
+        Long coleccionistaId = nuevoColeccionista();
+        MvcResult stream = suscribir(albumId, coleccionistaId);
+
+        difusorCambios.publicar(albumId, coleccionistaId, List.of(
+                repetidas(albumId, 1, 1), repetidas(albumId, 2, 1), repetidas(albumId, 1, 2),
+                repetidas(albumId, 1, 3)));
+        laminaService.marcarAdquirida(albumId, coleccionistaId, 3);
+        esperarEvento(stream, 3);
+
+        assertThat(eventos(stream))
+                .extracting(CambioAlbumResponse::getNumero, CambioAlbumResponse::getCantidadRepetidas)
+                .containsExactly(tuple(2, 1), tuple(1, 3), tuple(3, 0));
+    }
+
+    /* Más cambios pendientes que el máximo: se descartan y llega un único RESINCRONIZAR */
+    @Test
+    void desbordeEnviaUnSoloResincronizar() throws Exception {
+        Long albumId = crearAlbum(3);
+        Long coleccionistaId = nuevoColeccionista();
+        MvcResult stream = suscribir(albumId, coleccionistaId);
+        List<CambioAlbumResponse> cambios = new ArrayList<>();
+        for (int numero = 1; numero <= DifusorCambiosAlbum.MAXIMO_PENDIENTES * 2; numero++) {
+            cambios.add(repetidas(albumId, numero, 1));
+        }
+
+        difusorCambios.publicar(albumId, coleccionistaId, cambios);
+        laminaService.marcarAdquirida(albumId, coleccionistaId, 3);
+        esperarEvento(stream, 3);
+
+        assertThat(eventos(stream)).extracting(CambioAlbumResponse::getTipo)
+                .containsExactly(TipoCambioAlbum.RESINCRONIZAR, TipoCambioAlbum.LAMINA_ADQUIRIDA);
+    }
+
+    /* Eliminar el álbum envía ALBUM_ELIMINADO, cierra el stream y quita al suscriptor */
+    @Test
+    void albumEliminadoCierraElStream() throws Exception {
+        Long albumId = crearAlbum(3);
+        MvcResult stream = suscribir(albumId, nuevoColeccionista());
+        assertThat(difusorCambios.tieneSuscriptores(albumId)).isTrue();
+
+        albumService.eliminar(albumId);
+
+        mockMvc.perform(asyncDispatch(stream)).andExpect(status().isOk());
+        assertThat(eventos(stream)).extracting(CambioAlbumResponse::getTipo)
+                .containsExactly(TipoCambioAlbum.ALBUM_ELIMINADO);
+        assertThat(difusorCambios.tieneSuscriptores(albumId)).isFalse();
+    }
+
+    private MvcResult suscribir(Long albumId, Long coleccionistaId) throws Exception {
+        return mockMvc.perform(get("/api/albumes/" + albumId + "/eventos")
+                        .param(Coleccionista.PARAMETRO, String.valueOf(coleccionistaId))
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    /* Eventos recibidos hasta ahora (los datos JSON de cada evento; los latidos son comentarios y no cuentan) */
+    private List<CambioAlbumResponse> eventos(MvcResult stream) {
+        List<CambioAlbumResponse> eventos = new ArrayList<>();
+        try {
+            for (String linea : stream.getResponse().getContentAsString().split("\n")) {
+                if (linea.startsWith("data:")) {
+                    eventos.add(objectMapper.readValue(linea.substring("data:".length()), CambioAlbumResponse.class));
+                }
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        return eventos;
+    }
+
+    private void esperarEvento(MvcResult stream, Integer numero) {
+        await().atMost(Duration.ofSeconds(5)).until(() -> eventos(stream).stream()
+                .anyMatch(cambio -> numero.equals(cambio.getNumero())));
+    }
+
+    private static void esperar(Duration tiempo) {
+        try {
+            Thread.sleep(tiempo);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static CambioAlbumResponse repetidas(Long albumId, Integer numero, Integer cantidad) {
+        return new CambioAlbumResponse(TipoCambioAlbum.REPETIDA_AGREGADA, albumId, numero, false, cantidad);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.gestion_laminas_albunes_api.service;
+
+import com.example.gestion_laminas_albunes_api.PruebaIntegracion;
+import com.example.gestion_laminas_albunes_api.response.IntercambioResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IntercambioServiceTests extends PruebaIntegracion {
+
+    @Autowired
+    private IntercambioService intercambioService;
+
+    /* Solo los intercambios en ambos sentidos, ordenados por cambios posibles y luego por total */
+    @Test
+    void buscaIntercambiosEnAmbosSentidos() {
+        Long albumId = crearAlbum(4);
+        Long yo = nuevoColeccionista();
+        Long soloRecibo = nuevoColeccionista();
+        Long uno = nuevoColeccionista();
+        Long dos = nuevoColeccionista();
+        // Me faltan 2, 3 y 4; tengo repetida la 1
+        adquirirRepetida(albumId, yo, 1);
+        // Tiene repetida la 3 pero ya tiene la 1: no hay nada que darle
+        adquirirRepetida(albumId, soloRecibo, 1);
+        adquirirRepetida(albumId, soloRecibo, 3);
+        // Le falta la 1 y tiene repetida la 3
+        adquirirRepetida(albumId, uno, 3);
+        // Le falta la 1 y tiene repetidas la 2 y la 3
+        adquirirRepetida(albumId, dos, 2);
+        adquirirRepetida(albumId, dos, 3);
+
+        List<IntercambioResponse> intercambios = intercambioService.buscarIntercambios(albumId, yo, null);
+
+        assertThat(intercambios).extracting(IntercambioResponse::getColeccionistaId).containsExactly(dos, uno);
+        IntercambioResponse mejor = intercambios.get(0);
+        assertThat(mejor.getIntercambios()).isEqualTo(1);
+        assertThat(mejor.getLaminasQueDoy()).containsExactly(1);
+        assertThat(mejor.getLaminasQueRecibo()).containsExactly(2, 3);
+        assertThat(intercambioService.buscarIntercambios(albumId, yo, 1)).hasSize(1);
+        assertThat(intercambioService.buscarIntercambios(-1L, yo, null)).isNull();
+    }
+
+    /* Sin faltantes no hay nada que buscar */
+    @Test
+    void sinFaltantesNoHayIntercambios() {
+        Long albumId = crearAlbum(1);
+        Long yo = nuevoColeccionista();
+        Long otro = nuevoColeccionista();
+        adquirirRepetida(albumId, yo, 1);
+        adquirirRepetida(albumId, otro, 1);
+
+        assertThat(intercambioService.buscarIntercambios(albumId, yo, null)).isEmpty();
+    }
+
+    private void adquirirRepetida(Long albumId, Long coleccionistaId, Integer numero) {
+        laminaService.marcarAdquirida(albumId, coleccionistaId, numero);
+        laminaService.agregarRepetida(albumId, coleccionistaId, numero);
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.gestion_laminas_albunes_api.service;
+
+import com.example.gestion_laminas_albunes_api.PruebaIntegracion;
+import com.example.gestion_laminas_albunes_api.request.FilaLaminaRequest;
+import com.example.gestion_laminas_albunes_api.request.OperacionLaminaRequest;
+import com.example.gestion_laminas_albunes_api.request.TipoOperacionLamina;
+import com.example.gestion_laminas_albunes_api.response.ImportacionResponse;
+import com.example.gestion_laminas_albunes_api.response.LaminaConEstadoResponse;
+import com.example.gestion_laminas_albunes_api.response.ResultadoOperacionResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.example.gestion_laminas_albunes_api.request.TipoOperacionLamina.ADQUIRIR;
+import static com.example.gestion_laminas_albunes_api.request.TipoOperacionLamina.AGREGAR_REPETIDA;
+import static com.example.gestion_laminas_albunes_api.request.TipoOperacionLamina.QUITAR_REPETIDA;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class LaminaServiceTests extends PruebaIntegracion {
+
+    /* Los upserts atómicos no pierden toques aunque lleguen a la vez sobre la misma lámina */
+    @Test
+    void toquesConcurrentesNoSePierden() throws Exception {
+        Long albumId = crearAlbum(2);
+        Long coleccionistaId = nuevoColeccionista();
+        int hilos = 8;
+        int toquesPorHilo = 25;
+
+        enParalelo(hilos, () -> {
+            laminaService.marcarAdquirida(albumId, coleccionistaId, 1);
+            for (int i = 0; i < toquesPorHilo; i++) {
+                laminaService.agregarRepetida(albumId, coleccionistaId, 1);
+            }
+            return null;
+        });
+
+        assertThat(repetidasGuardadas(albumId, coleccionistaId, 1)).isEqualTo(hilos * toquesPorHilo);
+        assertThat(laminaService.consultarNumero(albumId, coleccionistaId, 1).isAdquirida()).isTrue();
+        assertThat(laminaService.consultarNumero(albumId, coleccionistaId, 2).isAdquirida()).isFalse();
+    }
+
+    /* El lote se aplica en el orden recibido: quitar y después agregar deja 1, no 0 */
+    @Test
+    void loteRespetaElOrdenDeLasOperaciones() {
+        Long albumId = crearAlbum(3);
+        Long coleccionistaId = nuevoColeccionista();
+
+        List<ResultadoOperacionResponse> resultados = laminaService.aplicarOperaciones(albumId, coleccionistaId,
+                List.of(operacion(1, QUITAR_REPETIDA), operacion(1, AGREGAR_REPETIDA)));
+
+        assertThat(resultados).extracting(ResultadoOperacionResponse::getCantidadRepetidas).containsExactly(0, 1);
+        assertThat(repetidasGuardadas(albumId, coleccionistaId, 1)).isEqualTo(1);
+    }
+
+    /* Las repetidas nunca bajan de 0 en ningún paso de la secuencia */
+    @Test
+    void loteNoDejaRepetidasNegativas() {
+        Long albumId = crearAlbum(3);
+        Long coleccionistaId = nuevoColeccionista();
+        laminaService.agregarRepetida(albumId, coleccionistaId, 2);
+        laminaService.agregarRepetida(albumId, coleccionistaId, 2);
+
+        List<ResultadoOperacionResponse> resultados = laminaService.aplicarOperaciones(albumId, coleccionistaId,
+                List.of(operacion(2, QUITAR_REPETIDA), operacion(2, QUITAR_REPETIDA), operacion(2, QUITAR_REPETIDA),
+                        operacion(2, AGREGAR_REPETIDA), operacion(3, QUITAR_REPETIDA)));
+
+        assertThat(resultados).extracting(ResultadoOperacionResponse::getCantidadRepetidas)
+                .containsExactly(1, 0, 0, 1, 0);
+        assertThat(repetidasGuardadas(albumId, coleccionistaId, 2)).isEqualTo(1);
+        assertThat(repetidasGuardadas(albumId, coleccionistaId, 3)).isZero();
+    }
+
+    /* Adquirir se combina con las repetidas del mismo lote; los números fuera del catálogo no se aplican */
+    @Test
+    void loteMarcaAdquiridasEInformaLasNoAplicadas() {
+        Long albumId = crearAlbum(3);
+        Long coleccionistaId = nuevoColeccionista();
+
+        List<ResultadoOperacionResponse> resultados = laminaService.aplicarOperaciones(albumId, coleccionistaId,
+                List.of(operacion(1, AGREGAR_REPETIDA), operacion(1, ADQUIRIR), operacion(99, ADQUIRIR)));
+
+        assertThat(resultados).extracting(ResultadoOperacionResponse::isAplicada).containsExactly(true, true, false);
+        assertThat(resultados).extracting(ResultadoOperacionResponse::getAdquirida).containsExactly(false, true, null);
+        assertThat(laminaService.consultarNumero(albumId, coleccionistaId, 1).isAdquirida()).isTrue();
+        assertThat(repetidasGuardadas(albumId, coleccionistaId, 1)).isEqualTo(1);
+        assertThat(laminaService.aplicarOperaciones(-1L, coleccionistaId, List.of(operacion(1, ADQUIRIR)))).isNull();
+    }
+
+    /* El catálogo es compartido; el estado de cada lámina es de cada coleccionista */
+    @Test
+    void cadaColeccionistaTieneSuEstado() {
+        Long albumId = crearAlbum(3);
+        Long uno = nuevoColeccionista();
+        Long otro = nuevoColeccionista();
+
+        laminaService.marcarAdquirida(albumId, uno, 1);
+        laminaService.agregarRepetida(albumId, uno, 2);
+
+        // Una faltante conserva sus repetidas
+        assertThat(laminaService.obtenerFaltantes(albumId, uno).orElseThrow())
+                .extracting(LaminaConEstadoResponse::getNumero, LaminaConEstadoResponse::getCantidadRepetidas)
+                .containsExactly(tuple(2, 1), tuple(3, 0));
+        assertThat(laminaService.obtenerFaltantes(albumId, otro).orElseThrow())
+                .extracting(LaminaConEstadoResponse::getNumero).containsExactly(1, 2, 3);
+        assertThat(laminaService.obtenerRepetidas(albumId, otro).orElseThrow()).isEmpty();
+        assertThat(laminaService.obtenerVersionColeccion(albumId, uno))
+                .isNotEqualTo(laminaService.obtenerVersionColeccion(albumId, otro));
+    }
+
+    /* Inserción multi-fila con RETURNING: solo los números nuevos, sin duplicados, en el orden recibido */
+    @Test
+    void crearMultiplesDevuelveLasLaminasInsertadas() {
+        Long albumId = crearAlbumVacio(5);
+
+        List<LaminaConEstadoResponse> creadas = laminaService.crearMultiples(albumId, Arrays.asList(3, 1, 3, null, 2));
+
+        assertThat(creadas).extracting(LaminaConEstadoResponse::getNumero).containsExactly(3, 1, 2);
+        assertThat(creadas).allSatisfy(lamina -> {
+            assertThat(lamina.getId()).isNotNull();
+            assertThat(lamina.getAdquirida()).isFalse();
+            assertThat(lamina.getCantidadRepetidas()).isZero();
+        });
+        assertThat(laminaService.crearMultiples(albumId, List.of(2, 4)))
+                .extracting(LaminaConEstadoResponse::getNumero).containsExactly(4);
+        assertThat(laminaService.crearMultiples(-1L, List.of(1))).isNull();
+    }
+
+    /*
+     * Importación por lotes: inserta o reemplaza en el catálogo, guarda el estado
+     * en la colección de quien importa y omite las filas sin número válido
+     */
+    @Test
+    void importarGuardaCatalogoYColeccion() {
+        Long albumId = crearAlbumVacio(5);
+        Long coleccionistaId = nuevoColeccionista();
+        laminaService.crearMultiples(albumId, List.of(2));
+
+        ImportacionResponse resultado = laminaService.importar(albumId, coleccionistaId, List.of(
+                fila(1, null, true, 2), fila(2, "Dos", false, 0), fila(9, null, true, 0),
+                fila(null, null, true, 0), fila(1, "Uno", true, 3)).iterator());
+
+        assertThat(resultado.getImportadas()).isEqualTo(2);
+        assertThat(resultado.getOmitidas()).isEqualTo(2);
+        assertThat(laminaService.obtenerPorAlbum(albumId, coleccionistaId).orElseThrow())
+                .extracting(LaminaConEstadoResponse::getNumero, LaminaConEstadoResponse::getNombre,
+                        LaminaConEstadoResponse::getAdquirida, LaminaConEstadoResponse::getCantidadRepetidas)
+                .containsExactly(tuple(1, "Uno", true, 3), tuple(2, "Dos", false, 0));
+        // Otro coleccionista ve el catálogo importado sin el estado
+        assertThat(laminaService.obtenerFaltantes(albumId, nuevoColeccionista()).orElseThrow()).hasSize(2);
+        assertThat(laminaService.importar(-1L, coleccionistaId, List.<FilaLaminaRequest>of().iterator())).isNull();
+    }
+
+    private static FilaLaminaRequest fila(Integer numero, String nombre, Boolean adquirida, Integer repetidas) {
+        FilaLaminaRequest fila = new FilaLaminaRequest();
+        fila.setNumero(numero);
+        fila.setNombre(nombre);
+        fila.setAdquirida(adquirida);
+        fila.setCantidadRepetidas(repetidas);
+        return fila;
+    }
+
+    private static OperacionLaminaRequest operacion(Integer numero, TipoOperacionLamina tipo) {
+        OperacionLaminaRequest operacion = new OperacionLaminaRequest();
+        operacion.setNumero(numero);
+        operacion.setOperacion(tipo);
+        return operacion;
+    }
+
+    /* Ejecutar la misma tarea en varios hilos a la vez y esperar a que todos terminen */
+    private static void enParalelo(int hilos, Callable<Void> tarea) throws Exception {
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<Void>> tareas = new ArrayList<>();
+        try {
+            for (int h = 0; h < hilos; h++) {
+                tareas.add(ejecutor.submit(() -> {
+                    salida.await();
+                    return tarea.call();
+                }));
+            }
+            salida.countDown();
+            for (Future<Void> resultado : tareas) {
+                resultado.get();
+            }
+        } finally {
+            ejecutor.shutdown();
+        }
+    }
+}
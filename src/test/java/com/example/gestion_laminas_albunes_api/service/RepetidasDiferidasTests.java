@@ -0,0 +1,131 @@
+package com.example.gestion_laminas_albunes_api.service;
+
+import com.example.gestion_laminas_albunes_api.PruebaIntegracion;
+import com.example.gestion_laminas_albunes_api.response.LaminaRepetidaResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * Escritura diferida de repetidas contra PostgreSQL. El intervalo es largo para
+ * que la escritura periódica no interfiera: solo se escribe al llegar al máximo
+ * de pendientes o al vaciar.
+ */
+@TestPropertySource(properties = {
+        "app.repetidas.diferidas.habilitadas=true",
+        "app.repetidas.diferidas.intervalo=1h"
+})
+class RepetidasDiferidasTests extends PruebaIntegracion {
+
+    @Autowired
+    private RepetidasDiferidas repetidasDiferidas;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /* Toques concurrentes sobre la misma colección, con escrituras intermedias por el máximo de pendientes */
+    @Test
+    void toquesConcurrentesSumanElTotalExacto() throws Exception {
+        Long albumId = crearAlbum(5);
+        Long coleccionistaId = nuevoColeccionista();
+        int hilos = 8;
+        int toquesPorHilo = 60;
+
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<?>> tareas = new ArrayList<>();
+        try {
+            for (int h = 0; h < hilos; h++) {
+                tareas.add(ejecutor.submit(() -> {
+                    salida.await();
+                    for (int i = 0; i < toquesPorHilo; i++) {
+                        assertThat(repetidasDiferidas.agregarRepetida(albumId, coleccionistaId, i % 5 + 1)).isNotNull();
+                    }
+                    return null;
+                }));
+            }
+            salida.countDown();
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+        } finally {
+            ejecutor.shutdown();
+        }
+        repetidasDiferidas.vaciar(albumId, coleccionistaId);
+
+        for (int numero = 1; numero <= 5; numero++) {
+            assertThat(repetidasGuardadas(albumId, coleccionistaId, numero)).isEqualTo(hilos * toquesPorHilo / 5);
+        }
+    }
+
+    /* Vaciar dentro de una transacción de escritura que se revierte devuelve los toques al buffer */
+    @Test
+    void transaccionRevertidaDevuelveLosToquesAlBuffer() {
+        Long albumId = crearAlbum(3);
+        Long coleccionistaId = nuevoColeccionista();
+        for (int i = 0; i < 3; i++) {
+            repetidasDiferidas.agregarRepetida(albumId, coleccionistaId, 2);
+        }
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(estado -> {
+            repetidasDiferidas.vaciar(albumId, coleccionistaId);
+            assertThat(repetidasGuardadas(albumId, coleccionistaId, 2)).isEqualTo(3);
+            estado.setRollbackOnly();
+        });
+        assertThat(repetidasGuardadas(albumId, coleccionistaId, 2)).isZero();
+
+        // Un toque posterior se suma a los restaurados
+        repetidasDiferidas.agregarRepetida(albumId, coleccionistaId, 2);
+        repetidasDiferidas.vaciar(albumId, coleccionistaId);
+        assertThat(repetidasGuardadas(albumId, coleccionistaId, 2)).isEqualTo(4);
+    }
+
+    /* Una lectura justo después de los toques escribe los pendientes antes de consultar */
+    @Test
+    void lecturaVeLosToquesPendientes() {
+        Long albumId = crearAlbum(3);
+        Long coleccionistaId = nuevoColeccionista();
+        repetidasDiferidas.agregarRepetida(albumId, coleccionistaId, 1);
+        assertThat(repetidasDiferidas.agregarRepetida(albumId, coleccionistaId, 1).getCantidadRepetidas())
+                .isEqualTo(2);
+        assertThat(repetidasGuardadas(albumId, coleccionistaId, 1)).isZero();
+
+        List<LaminaRepetidaResponse> repetidas = laminaService.obtenerRepetidas(albumId, coleccionistaId).orElseThrow();
+
+        assertThat(repetidas).singleElement().satisfies(lamina -> {
+            assertThat(lamina.getNumero()).isEqualTo(1);
+            assertThat(lamina.getCantidadRepetidas()).isEqualTo(2);
+        });
+        assertThat(laminaService.consultarNumero(albumId, coleccionistaId, 1).isAdquirida()).isFalse();
+    }
+
+    /* Leer una lámina escribe solo los pendientes de la colección de su álbum */
+    @Test
+    void lecturaDeUnaLaminaVaciaSoloSuAlbum() {
+        Long albumId = crearAlbum(3);
+        Long otroAlbumId = crearAlbum(3);
+        Long coleccionistaId = nuevoColeccionista();
+        repetidasDiferidas.agregarRepetida(albumId, coleccionistaId, 2);
+        repetidasDiferidas.agregarRepetida(otroAlbumId, coleccionistaId, 2);
+        Long laminaId = jdbc.queryForObject("SELECT id FROM laminas WHERE album_id = ? AND numero = 2", Long.class,
+                albumId);
+
+        assertThat(laminaService.obtenerPorId(laminaId, coleccionistaId).getCantidadRepetidas()).isEqualTo(1);
+
+        assertThat(repetidasGuardadas(albumId, coleccionistaId, 2)).isEqualTo(1);
+        assertThat(repetidasGuardadas(otroAlbumId, coleccionistaId, 2)).isZero();
+        repetidasDiferidas.vaciar(otroAlbumId, coleccionistaId);
+        assertThat(repetidasGuardadas(otroAlbumId, coleccionistaId, 2)).isEqualTo(1);
+    }
+}